@@ -0,0 +1,9 @@
+package net.argus;
+
+public record BodyExpectation (
+      String contains
+    , String regex
+    , String jsonPointer
+    , String jsonValue
+    , long maxBody
+) {}
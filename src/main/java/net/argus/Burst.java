@@ -0,0 +1,3 @@
+package net.argus;
+
+public record Burst(int count, int spacing, int warning, int failure) {}
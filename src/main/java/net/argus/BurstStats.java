@@ -0,0 +1,7 @@
+package net.argus;
+
+public record BurstStats(int sent, int received, double meanRtt, double jitter) {
+    public double loss() {
+        return sent == 0 ? 0.0 : (double) (sent - received) / sent * 100.0;
+    }
+}
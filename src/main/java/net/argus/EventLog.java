@@ -0,0 +1,58 @@
+package net.argus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/*
+ * Machine-readable stream of results (DEBUG) and status transitions (INFO) on the "argus.events" logger, with each
+ * field as a structured argument so the logstash encoder writes it as JSON rather than into a message string.
+ * logback.xml routes it through batching async appenders to logs/argus-events.json, where transitions wait for room
+ * and results are dropped when the disk falls behind; it is OFF unless ARGUS_EVENTS_LEVEL says otherwise, and the
+ * level checks keep a disabled stream from building arguments at all. "at" is when the check completed, which can be
+ * well before @timestamp if bookkeeping or the appender was behind.
+ */
+class EventLog {
+    private static final Logger events = LoggerFactory.getLogger("argus.events");
+
+    // Called from result bookkeeping, never from probe threads; only a transition can wait on a full appender queue
+    static void record(MonitorState state, TestResult result, MonitorSnapshot snapshot) {
+        if (snapshot.statusChanged() && events.isInfoEnabled()) {
+            events.info("transition"
+                    , kv("monitor", key(state))
+                    , kv("method", state.destination.test().testMethod())
+                    , kv("at", result.timestamp().toString())
+                    , kv("from", snapshot.previousStatus())
+                    , kv("status", snapshot.status())
+                    , kv("consecutiveFailures", snapshot.consecutiveFailures())
+                    , kv("error", result.error()));
+        }
+        if (events.isDebugEnabled()) {
+            final var fields = new ArrayList<Object>(12);
+            fields.add(kv("monitor", key(state)));
+            fields.add(kv("method", state.destination.test().testMethod()));
+            fields.add(kv("at", result.timestamp().toString()));
+            fields.add(kv("success", result.success()));
+            fields.add(kv("duration", result.duration()));
+            fields.add(kv("status", snapshot.status()));
+            if (result.error() != null) {
+                fields.add(kv("error", result.error()));
+            }
+            if (result.phases() != null) {
+                fields.add(kv("phases", result.phases()));
+            }
+            if (result.burst() != null) {
+                fields.add(kv("loss", result.burst().loss()));
+                fields.add(kv("jitter", result.burst().jitter()));
+            }
+            events.debug("result", fields.toArray());
+        }
+    }
+
+    private static String key(MonitorState state) {
+        return state.group.group() + ":" + state.destination.name();
+    }
+}
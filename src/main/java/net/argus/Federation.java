@@ -0,0 +1,258 @@
+package net.argus;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Polls the /api/status of upstream Argus instances, each on its own schedule and timeout, with If-None-Match so an
+ * unchanged site costs a 304. The dashboard only ever reads the cached copy, so a slow or dead site shows as stale
+ * instead of holding up the page.
+ */
+class Federation {
+    private static final Logger logger = LoggerFactory.getLogger(Federation.class);
+    private static final long MAX_STATUS_BYTES = 16L << 20; // roughly 60k monitors; anything larger is not an Argus status
+
+    // phases and burst are null when the upstream has none to report, as for local monitors
+    record RemoteMonitor(String name, String host, MonitorStatus status, long duration, long p95, double uptime, long lastCheck, String description, String error, PhaseTimings phases, BurstStats burst) {}
+    record RemoteGroup(String group, int sort, List<RemoteMonitor> monitors) {}
+
+    // updatedAt is when the upstream last answered (200 or 304); error is set while polls fail and the groups are the last good copy
+    record RemoteSite(String site, String name, List<RemoteGroup> groups, long updatedAt, String error, long staleAfterMs) {
+        boolean isStale(long nowMs) {
+            return error != null || nowMs - updatedAt > staleAfterMs;
+        }
+    }
+
+    private final List<Poller> pollers = new ArrayList<>();
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    Federation(List<Upstream> upstreams) {
+        this.client = upstreams.isEmpty() ? null : HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(upstreams.stream().mapToInt(Upstream::timeout).max().orElse(2000)))
+                .build();
+        for (var upstream : upstreams) {
+            pollers.add(new Poller(upstream));
+        }
+    }
+
+    void start(ScheduledExecutorService scheduler) {
+        for (var poller : pollers) {
+            logger.info("Federating site {} from {} (every {}s, timeout {}ms)", poller.upstream.site(), poller.upstream.url(), poller.upstream.interval(), poller.upstream.timeout());
+            scheduler.scheduleAtFixedRate(poller::poll, 0, poller.upstream.interval(), TimeUnit.SECONDS);
+        }
+    }
+
+    boolean isEnabled() {
+        return !pollers.isEmpty();
+    }
+
+    List<RemoteSite> sites() {
+        return pollers.stream().map(poller -> poller.site).toList();
+    }
+
+    void stop() {
+        if (client != null) {
+            client.shutdownNow();
+        }
+    }
+
+    private class Poller {
+        private final Upstream upstream;
+        private final URI statusUri;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private volatile RemoteSite site;
+        private volatile String etag;
+
+        Poller(Upstream upstream) {
+            this.upstream = upstream;
+            this.statusUri = URI.create(upstream.url()).resolve("/api/status");
+            this.site = new RemoteSite(upstream.site(), null, List.of(), 0, "Not polled yet", staleAfterMs());
+        }
+
+        // Runs on the scheduler and returns at once; the response is handled on the HTTP client's threads
+        void poll() {
+            if (!inFlight.compareAndSet(false, true)) {
+                return; // previous poll is still bounded by its own timeout
+            }
+
+            final var request = HttpRequest.newBuilder(statusUri)
+                    .timeout(Duration.ofMillis(upstream.timeout()))
+                    .header("Accept", "application/json");
+            final var knownTag = etag;
+            if (knownTag != null) {
+                request.header("If-None-Match", knownTag);
+            }
+
+            final var exchange = client.sendAsync(request.GET().build(), info -> new LimitedBodySubscriber(MAX_STATUS_BYTES));
+            // The request timeout only covers the headers; this bounds the body as well
+            exchange.copy().orTimeout(upstream.timeout(), TimeUnit.MILLISECONDS).whenComplete((response, throwable) -> {
+                try {
+                    if (throwable != null) {
+                        exchange.cancel(true);
+                        failed(describe(throwable));
+                    } else if (response.statusCode() == 304) {
+                        succeeded(new RemoteSite(upstream.site(), site.name(), site.groups(), System.currentTimeMillis(), null, staleAfterMs()));
+                    } else if (response.statusCode() == 200) {
+                        succeeded(parse(mapper.readTree(response.body())));
+                        etag = response.headers().firstValue("ETag").orElse(null);
+                    } else {
+                        failed("HTTP " + response.statusCode());
+                    }
+                } catch (Exception e) {
+                    failed("Invalid status response: " + e.getMessage());
+                } finally {
+                    inFlight.set(false);
+                }
+            });
+        }
+
+        private void succeeded(RemoteSite fresh) {
+            if (site.error() != null && site.updatedAt() > 0) {
+                logger.info("Site {} reachable again", upstream.site());
+            }
+            site = fresh;
+        }
+
+        private void failed(String error) {
+            if (site.error() == null) {
+                logger.warn("Site {} poll failed, showing it as stale: {}", upstream.site(), error);
+            }
+            site = new RemoteSite(site.site(), site.name(), site.groups(), site.updatedAt(), error, staleAfterMs());
+        }
+
+        private RemoteSite parse(JsonNode root) {
+            final var groups = new ArrayList<RemoteGroup>();
+            for (var groupNode : root.get("groups")) {
+                final var monitors = new ArrayList<RemoteMonitor>();
+                for (var monitorNode : groupNode.get("monitors")) {
+                    monitors.add(new RemoteMonitor(
+                              monitorNode.get("name").asText()
+                            , monitorNode.path("host").asText("")
+                            , MonitorStatus.valueOf(monitorNode.get("status").asText())
+                            , monitorNode.path("duration").asLong(-1)
+                            , monitorNode.path("p95").asLong(-1)
+                            , monitorNode.path("uptime").asDouble()
+                            , monitorNode.path("lastCheck").asLong(-1)
+                            , monitorNode.path("description").asText("")
+                            , monitorNode.path("error").asText(null)
+                            , phases(monitorNode.get("phases"))
+                            , burst(monitorNode.get("burst"))
+                    ));
+                }
+                groups.add(new RemoteGroup(groupNode.get("group").asText(), groupNode.path("sort").asInt(), monitors));
+            }
+            return new RemoteSite(upstream.site(), root.path("name").asText(upstream.site()), groups, System.currentTimeMillis(), null, staleAfterMs());
+        }
+
+        private static PhaseTimings phases(JsonNode node) {
+            return node == null || !node.isObject() ? null : new PhaseTimings(
+                      node.path("resolve").asLong(-1)
+                    , node.path("connect").asLong(-1)
+                    , node.path("tls").asLong(-1)
+                    , node.path("firstByte").asLong(-1)
+                    , node.path("body").asLong(-1));
+        }
+
+        private static BurstStats burst(JsonNode node) {
+            return node == null || !node.isObject() ? null : new BurstStats(
+                      node.path("sent").asInt()
+                    , node.path("received").asInt()
+                    , node.path("meanRtt").asDouble()
+                    , node.path("jitter").asDouble());
+        }
+
+        // Two missed polls, each allowed its full timeout
+        private long staleAfterMs() {
+            return 2L * (upstream.interval() * 1000L + upstream.timeout());
+        }
+
+        private String describe(Throwable throwable) {
+            final var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            if (cause instanceof TimeoutException || cause instanceof HttpTimeoutException) {
+                return "No answer within " + upstream.timeout() + "ms";
+            }
+            if (cause instanceof ConnectException) {
+                return "Cannot connect to " + statusUri.getAuthority(); // the client leaves its message empty
+            }
+            return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        }
+    }
+
+    // Collects the body like ofByteArray, but gives up and cancels the exchange once it passes max bytes
+    private static final class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final HttpResponse.BodySubscriber<byte[]> bytes = HttpResponse.BodySubscribers.ofByteArray();
+        private final long max;
+        private Flow.Subscription subscription;
+        private long received = 0;
+        private boolean abandoned = false;
+
+        LimitedBodySubscriber(long max) {
+            this.max = max;
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return bytes.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            bytes.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (abandoned) {
+                return;
+            }
+            for (var item : items) {
+                received += item.remaining();
+            }
+            if (received > max) {
+                abandoned = true;
+                subscription.cancel();
+                bytes.onError(new IOException("Status response larger than " + max + " bytes"));
+                return;
+            }
+            bytes.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (!abandoned) {
+                bytes.onError(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!abandoned) {
+                bytes.onComplete();
+            }
+        }
+    }
+}
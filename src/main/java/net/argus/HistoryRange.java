@@ -0,0 +1,72 @@
+package net.argus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+// A copy of the results between two instants, oldest first, taken under the store lock and aggregated outside it
+record HistoryRange(long[] timestamps, int[] durations, boolean[] success) {
+    static final HistoryRange EMPTY = new HistoryRange(new long[0], new int[0], new boolean[0]);
+
+    record Bucket(long start, int count, int successes, int min, double avg, int max, int percentile) {
+        double successRatio() {
+            return (double) successes / count;
+        }
+    }
+
+    int size() {
+        return timestamps.length;
+    }
+
+    // Buckets of step ms aligned to origin; empty buckets are left out. Reorders durations within each bucket.
+    List<Bucket> downsample(long origin, long step, double percentile) {
+        final var buckets = new ArrayList<Bucket>();
+        var first = 0;
+        while (first < size()) {
+            final var index = Math.floorDiv(Math.subtractExact(timestamps[first], origin), step);
+            final var end = Math.addExact(origin, Math.multiplyExact(index + 1, step));
+            var last = first;
+            var successes = 0;
+            var sum = 0L;
+            var min = Integer.MAX_VALUE;
+            var max = Integer.MIN_VALUE;
+            while (last < size() && timestamps[last] < end) {
+                final var duration = durations[last];
+                successes += success[last] ? 1 : 0;
+                sum += duration;
+                min = Math.min(min, duration);
+                max = Math.max(max, duration);
+                last++;
+            }
+
+            if (last == first) {
+                throw new IllegalStateException("Bucket at " + (origin + index * step) + " holds no results"); // would never advance
+            }
+            final var count = last - first;
+            final var p = HeapHistoryStore.select(durations, first, last, first + HeapHistoryStore.percentileIndex(percentile, count));
+            buckets.add(new Bucket(origin + index * step, count, successes, min, (double) sum / count, max, p));
+            first = last;
+        }
+        return buckets;
+    }
+
+    // The start of the step-wide bucket holding timestamp on a grid anchored at anchor; throws ArithmeticException on overflow
+    static long alignDown(long timestamp, long anchor, long step) {
+        return Math.addExact(anchor, Math.multiplyExact(Math.floorDiv(Math.subtractExact(timestamp, anchor), step), step));
+    }
+
+    // First logical index whose timestamp is at or after target, given timestamps ordered oldest first
+    static int lowerBound(int size, long target, IntToLongFunction timestampAt) {
+        var low = 0;
+        var high = size;
+        while (low < high) {
+            final var mid = (low + high) >>> 1;
+            if (timestampAt.applyAsLong(mid) < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,209 @@
+package net.argus;
+
+import java.util.function.IntToLongFunction;
+import java.util.function.ObjIntConsumer;
+
+interface HistoryStore {
+    void add(TestResult result);
+    int size();
+    double uptimePercentage();
+    long durationPercentile(double percentile);
+    PhaseTimings averagePhaseTimings();
+    HistoryRange range(long fromMs, long toMs);
+
+    static HistoryStore create(String backend, Destination destination) {
+        if (backend == null || "heap".equals(backend)) {
+            return new HeapHistoryStore(Math.min(destination.history(), 1000)); // Cap at 1000 records max
+        }
+        if ("offheap".equals(backend)) {
+            return new OffHeapHistoryStore(Math.min(destination.history(), OffHeapHistoryStore.MAX_CAPACITY), TestFactory.getTest(destination.test().testMethod()).reportsPhases());
+        }
+        throw new IllegalArgumentException("Unknown history store: " + backend + ". Supported stores: heap, offheap");
+    }
+}
+
+// Running totals for a ring of results, adjusted as results enter and leave it, shared so both stores count alike.
+// Not thread-safe: each store calls it under its own lock.
+final class HistoryAggregates {
+    private int successes = 0;
+    private final long[] phaseSums = new long[PhaseTimings.COUNT];
+    private final int[] phaseCounts = new int[PhaseTimings.COUNT];
+
+    // Percentiles are read far less often than results arrive, so the last one is kept until the next change
+    private double cachedPercentile = Double.NaN;
+    private long cachedDuration;
+
+    // sign is 1 for a result entering the ring and -1 for one leaving it; phaseAt is null for an untimed result, and
+    // phases that never completed (-1) are left out of the averages
+    void account(boolean success, IntToLongFunction phaseAt, int sign) {
+        cachedPercentile = Double.NaN;
+        if (success) {
+            successes += sign;
+        }
+        if (phaseAt != null) {
+            for (var phase = 0; phase < PhaseTimings.COUNT; phase++) {
+                final var value = phaseAt.applyAsLong(phase);
+                if (value >= 0) {
+                    phaseSums[phase] += sign * value;
+                    phaseCounts[phase] += sign;
+                }
+            }
+        }
+    }
+
+    double uptimePercentage(int size) {
+        return size == 0 ? 0.0 : (double) successes / size * 100.0;
+    }
+
+    PhaseTimings averagePhaseTimings() {
+        return PhaseTimings.average(phaseSums, phaseCounts);
+    }
+
+    // durations copies the size stored durations into the scratch array it is handed, in any order
+    long durationPercentile(double percentile, int size, ObjIntConsumer<int[]> durations) {
+        if (size == 0) {
+            return -1;
+        }
+        if (percentile != cachedPercentile) {
+            final var scratch = HeapHistoryStore.scratch(size);
+            durations.accept(scratch, size);
+            cachedDuration = HeapHistoryStore.select(scratch, size, HeapHistoryStore.percentileIndex(percentile, size));
+            cachedPercentile = percentile;
+        }
+        return cachedDuration;
+    }
+}
+
+class HeapHistoryStore implements HistoryStore {
+    private static final ThreadLocal<int[]> percentileScratch = ThreadLocal.withInitial(() -> new int[0]);
+    private final TestResult[] ring;
+    private final long[] times;
+    private int head = 0;
+    private int size = 0;
+    private long lastAppend = Long.MIN_VALUE;
+    private final HistoryAggregates aggregates = new HistoryAggregates();
+
+    HeapHistoryStore(int capacity) {
+        this.ring = new TestResult[Math.max(capacity, 1)];
+        this.times = new long[ring.length];
+    }
+
+    @Override
+    public synchronized void add(TestResult result) {
+        if (size == ring.length) {
+            account(ring[head], -1);
+        }
+        account(result, 1);
+        ring[head] = result;
+        lastAppend = appendTime(lastAppend);
+        times[head] = lastAppend;
+        head = (head + 1) % ring.length;
+        size = Math.min(size + 1, ring.length);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized double uptimePercentage() {
+        return aggregates.uptimePercentage(size);
+    }
+
+    @Override
+    public synchronized long durationPercentile(double percentile) {
+        return aggregates.durationPercentile(percentile, size, (durations, count) -> {
+            for (var i = 0; i < count; i++) {
+                durations[i] = (int) Math.min(ring[i].duration(), Integer.MAX_VALUE);
+            }
+        });
+    }
+
+    @Override
+    public synchronized PhaseTimings averagePhaseTimings() {
+        return aggregates.averagePhaseTimings();
+    }
+
+    private void account(TestResult result, int sign) {
+        final var phases = result.phases();
+        aggregates.account(result.success(), phases != null ? phases::get : null, sign);
+    }
+
+    // appendTime keeps timestamps ascending from the oldest slot, so the range is found by binary search
+    @Override
+    public synchronized HistoryRange range(long fromMs, long toMs) {
+        final var oldest = size < ring.length ? 0 : head;
+        final var first = HistoryRange.lowerBound(size, fromMs, i -> times[(oldest + i) % ring.length]);
+        final var last = HistoryRange.lowerBound(size, toMs, i -> times[(oldest + i) % ring.length]);
+        if (first >= last) {
+            return HistoryRange.EMPTY;
+        }
+
+        final var count = last - first;
+        final var range = new HistoryRange(new long[count], new int[count], new boolean[count]);
+        for (var n = 0; n < count; n++) {
+            final var index = (oldest + first + n) % ring.length;
+            range.timestamps()[n] = times[index];
+            range.durations()[n] = (int) Math.min(ring[index].duration(), Integer.MAX_VALUE);
+            range.success()[n] = ring[index].success();
+        }
+        return range;
+    }
+
+    // Wall-clock ms when a result is stored, never behind the previous one. The result's own LocalDateTime repeats an
+    // hour at the DST fall-back and a clock step can move either backwards, which would unsort the ring.
+    static long appendTime(long previous) {
+        return Math.max(System.currentTimeMillis(), previous);
+    }
+
+    static int percentileIndex(double percentile, int size) {
+        return (int) Math.min(size - 1, Math.max(0, Math.ceil(percentile / 100.0 * size) - 1));
+    }
+
+    // Per-thread buffer reused across monitors, so percentiles allocate nothing per call
+    static int[] scratch(int size) {
+        var scratch = percentileScratch.get();
+        if (scratch.length < size) {
+            scratch = new int[size];
+            percentileScratch.set(scratch);
+        }
+        return scratch;
+    }
+
+    static int select(int[] values, int size, int k) {
+        return select(values, 0, size, k);
+    }
+
+    // Quickselect: the k-th smallest of values[from, to), k counted from the array start, in linear expected time; reorders that range in place
+    static int select(int[] values, int from, int to, int k) {
+        var left = from;
+        var right = to - 1;
+        while (left < right) {
+            final var pivot = values[(left + right) >>> 1];
+            var i = left;
+            var j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    final var swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return values[k];
+            }
+        }
+        return values[k];
+    }
+}
@@ -3,6 +3,7 @@ package net.argus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -12,8 +13,10 @@ public class Main {
     private final Map<String, MonitorState> monitorsMap = new ConcurrentHashMap<>();
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
-    private final ExecutorService testExecutor = Executors.newFixedThreadPool(4);
+    private final ExecutorService resultExecutor = Executors.newFixedThreadPool(4);
+    private final MonitorStats stats = new MonitorStats();
     private WebServer server = null;
+    private Federation federation = null;
 
     public Main(String configPath) throws Exception {
         logger.info("Starting Argus Monitor with config: {}", configPath);
@@ -23,11 +26,13 @@ public class Main {
         logger.info("Loaded configuration for instance: {}", config.name());
         logMemoryUsage("Config loaded");
 
-        Monitors monitors = new Monitors(config, monitorsMap, scheduler, testExecutor);
+        Monitors monitors = new Monitors(config, monitorsMap, scheduler, resultExecutor, stats);
         logMemoryUsage("Monitors initialized");
 
-        server = new WebServer(config, monitorsMap);
+        federation = new Federation(config.upstreams());
+        server = new WebServer(config, monitorsMap, federation);
         monitors.startMonitoring();
+        federation.start(scheduler);
         logger.info("Argus Monitor initialization complete");
         logMemoryUsage("Fully started");
 
@@ -41,8 +46,20 @@ public class Main {
         final var freeMB = runtime.freeMemory() / 1024 / 1024;
         final var usedMB = totalMB - freeMB;
         final var maxMB = runtime.maxMemory() / 1024 / 1024;
+        final var offHeapMB = OffHeapHistoryStore.reservedBytes() / 1024 / 1024;
 
-        logger.info("Memory [{}]: Used={}MB, Free={}MB, Total={}MB, Max={}MB", phase, usedMB, freeMB, totalMB, maxMB);
+        var gcCount = 0L;
+        var gcTimeMs = 0L;
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(gc.getCollectionCount(), 0);
+            gcTimeMs += Math.max(gc.getCollectionTime(), 0);
+        }
+
+        logger.info("Memory [{}]: Used={}MB, Free={}MB, Total={}MB, Max={}MB, OffHeap={}MB, GC={} collections/{}ms", phase, usedMB, freeMB, totalMB, maxMB, offHeapMB, gcCount, gcTimeMs);
+    }
+
+    public MonitorStats stats() {
+        return stats;
     }
 
     public void shutdown() {
@@ -53,16 +70,19 @@ public class Main {
         }
 
         scheduler.shutdown();
-        testExecutor.shutdown();
+        resultExecutor.shutdown();
+        if (federation != null) {
+            federation.stop();
+        }
 
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
                 scheduler.shutdownNow();
                 logger.warn("Scheduler forced shutdown");
             }
-            if (!testExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                testExecutor.shutdownNow();
-                logger.warn("Test executor forced shutdown");
+            if (!resultExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                resultExecutor.shutdownNow();
+                logger.warn("Result executor forced shutdown");
             }
         } catch (InterruptedException e) {
             logger.error("Interrupted during shutdown", e);
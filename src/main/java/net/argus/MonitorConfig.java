@@ -1,5 +1,6 @@
 package net.argus;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.nio.file.Files;
@@ -8,7 +9,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
-record MonitorConfig (String name, String listen, List<Group> monitors){
+record MonitorConfig (String name, String listen, String historyStore, List<Group> monitors, List<Upstream> upstreams){
     static MonitorConfig loadConfig(String configPath) throws Exception { //parse it manually, skip library import, etc
         final var mapper = new ObjectMapper();
         final var configContent = Files.readString(Paths.get(configPath));
@@ -16,7 +17,19 @@ record MonitorConfig (String name, String listen, List<Group> monitors){
         // Simple JSON parsing for the configuration
         final var root = mapper.readTree(configContent);
 
-        final var config = new MonitorConfig(root.get("name").asText(), root.get("listen").asText(), new ArrayList<>());
+        final var historyStore = root.has("historyStore") ? root.get("historyStore").asText() : null;
+        final var config = new MonitorConfig(root.get("name").asText(), root.get("listen").asText(), historyStore, new ArrayList<>(), new ArrayList<>());
+
+        if (root.has("upstreams")) {
+            for (var upstreamNode : root.get("upstreams")) {
+                config.upstreams().add(new Upstream(
+                        upstreamNode.get("site").asText()
+                        , upstreamNode.get("url").asText()
+                        , upstreamNode.has("timeout") ? upstreamNode.get("timeout").asInt() : 2000
+                        , upstreamNode.has("interval") ? upstreamNode.get("interval").asInt() : 10
+                ));
+            }
+        }
 
         final var monitorsNode = root.get("monitors");
         for (var monitorNode : monitorsNode) {
@@ -31,6 +44,10 @@ record MonitorConfig (String name, String listen, List<Group> monitors){
                 final var url = testNode.has("url") ? testNode.get("url").asText() : null;
                 final var proxy = testNode.has("proxy") ? testNode.get("proxy").asText() : null;
                 final var host = testNode.has("host") ? testNode.get("host").asText() : null;
+                final var payload = testNode.has("payload") ? testNode.get("payload").asText() : null;
+                final var query = testNode.has("query") ? testNode.get("query").asText() : null;
+                final var expect = testNode.has("expect") ? parseExpectation(testNode.get("expect")) : null;
+                final var burst = testNode.has("burst") ? parseBurst(testNode.get("burst")) : null;
 
                 final var dest = new Destination(
                         destNode.get("sort").asInt()
@@ -41,7 +58,7 @@ record MonitorConfig (String name, String listen, List<Group> monitors){
                         , destNode.get("reset").asInt()
                         , destNode.get("interval").asInt()
                         , destNode.get("history").asInt()
-                        , new TestConfig(TestMethod.valueOf(method), protocol == null ? null : Protocol.valueOf(protocol), port, url, proxy, host)
+                        , new TestConfig(method, protocol == null ? null : Protocol.valueOf(protocol), port, url, proxy, host, payload == null ? null : UdpPayload.valueOf(payload), query, expect, burst)
                 );
                 group.destinations().add(dest);
             }
@@ -52,10 +69,44 @@ record MonitorConfig (String name, String listen, List<Group> monitors){
 
         return config;
     }
+
+    private static Burst parseBurst(JsonNode burstNode) {
+        return new Burst(
+              burstNode.get("count").asInt()
+            , burstNode.has("spacing") ? burstNode.get("spacing").asInt() : 0
+            , burstNode.has("warning") ? burstNode.get("warning").asInt() : 0
+            , burstNode.has("failure") ? burstNode.get("failure").asInt() : 0
+        );
+    }
+
+    private static BodyExpectation parseExpectation(JsonNode expectNode) {
+        return new BodyExpectation(
+              expectNode.has("contains") ? expectNode.get("contains").asText() : null
+            , expectNode.has("regex") ? expectNode.get("regex").asText() : null
+            , expectNode.has("jsonPointer") ? expectNode.get("jsonPointer").asText() : null
+            , expectNode.has("jsonValue") ? expectNode.get("jsonValue").asText() : null
+            , expectNode.has("maxBody") ? expectNode.get("maxBody").asLong() : -1
+        );
+    }
 }
 
 record Group (int sort, String group, List<Destination> destinations) {}
 
+// Another Argus instance whose /api/status is merged into this dashboard under its site name
+record Upstream(String site, String url, int timeout, int interval) {
+    public Upstream {
+        if (site == null || site.trim().isEmpty()) {
+            throw new IllegalArgumentException("Upstream site cannot be empty");
+        }
+        if (url == null || !(url.startsWith("http://") || url.startsWith("https://"))) {
+            throw new IllegalArgumentException("Upstream url must be an http(s) URL: " + url);
+        }
+        if (timeout <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Upstream timeout and interval must be positive");
+        }
+    }
+}
+
 record Destination(int sort, String name, int timeout, int warning, int failure, int reset, int interval, int history, TestConfig test) {
     public Destination {
         if (name == null || name.trim().isEmpty()) {
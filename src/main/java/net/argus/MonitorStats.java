@@ -0,0 +1,43 @@
+package net.argus;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Engine throughput counters: checks completed, how late each run started and how long until its result landed
+public class MonitorStats {
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder lagTotal = new LongAdder();
+    private final LongAccumulator lagMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder latencyTotal = new LongAdder();
+    private final LongAccumulator latencyMax = new LongAccumulator(Math::max, 0);
+
+    public record Sample(long runs, long checks, double lagAvgMs, double lagMaxMs, double latencyAvgMs, double latencyMaxMs) {}
+
+    void recordLag(long lagNanos) {
+        final var lag = Math.max(lagNanos, 0);
+        runs.increment();
+        lagTotal.add(lag);
+        lagMax.accumulate(lag);
+    }
+
+    void recordResult(long latencyNanos) {
+        checks.increment();
+        latencyTotal.add(latencyNanos);
+        latencyMax.accumulate(latencyNanos);
+    }
+
+    // Returns the counters accumulated since the previous call and starts a new window
+    public Sample sampleAndReset() {
+        final var started = runs.sumThenReset();
+        final var completed = checks.sumThenReset();
+        return new Sample(
+              started
+            , completed
+            , lagTotal.sumThenReset() / (Math.max(started, 1) * 1_000_000.0)
+            , lagMax.getThenReset() / 1_000_000.0
+            , latencyTotal.sumThenReset() / (Math.max(completed, 1) * 1_000_000.0)
+            , latencyMax.getThenReset() / 1_000_000.0
+        );
+    }
+}
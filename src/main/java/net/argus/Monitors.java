@@ -1,25 +1,32 @@
 package net.argus;
 
+import net.argus.tests.BurstSampler;
+import net.argus.tests.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 class Monitors {
     private static final Logger logger = LoggerFactory.getLogger(Monitors.class);
+    private static final int DEADLINE_GRACE_MS = 250;
     private final Map<String, MonitorState> monitors;
     private final ScheduledExecutorService scheduler;
-    private final ExecutorService testExecutor;
+    private final ExecutorService resultExecutor;
+    private final MonitorStats stats;
 
-    Monitors(MonitorConfig config, Map<String, MonitorState> monitors, ScheduledExecutorService scheduler, ExecutorService testExecutor) {
+    Monitors(MonitorConfig config, Map<String, MonitorState> monitors, ScheduledExecutorService scheduler, ExecutorService resultExecutor, MonitorStats stats) {
         this.monitors = monitors;
         this.scheduler = scheduler;
-        this.testExecutor = testExecutor;
+        this.resultExecutor = resultExecutor;
+        this.stats = stats;
 
         var totalMonitors = 0;
         for (var group : config.monitors()) {
@@ -27,7 +34,7 @@ class Monitors {
             for (var dest : group.destinations()) {
                 try {
                     final var key = group.group() + ":" + dest.name();
-                    final var state = new MonitorState(dest, group);
+                    final var state = new MonitorState(dest, group, HistoryStore.create(config.historyStore(), dest));
                     monitors.put(key, state);
                     totalMonitors++;
                     logger.debug("Initialized monitor: {} ({})", dest.name(), state.getTestDescription());
@@ -37,7 +44,7 @@ class Monitors {
                 }
             }
         }
-        logger.info("Initialized {} monitors across {} groups", totalMonitors, config.monitors().size());
+        logger.info("Initialized {} monitors across {} groups ({} history)", totalMonitors, config.monitors().size(), config.historyStore() != null ? config.historyStore() : "heap");
     }
 
     void startMonitoring() {
@@ -47,7 +54,7 @@ class Monitors {
             logger.debug("Scheduling monitor: {} (interval: {}s)", entry.getKey(), state.destination.interval());
             // Schedule periodic testing
             scheduler.scheduleAtFixedRate(
-                    () -> performTest(state)
+                    new ScheduledCheck(state)
                     , 0
                     , state.destination.interval()
                     , TimeUnit.SECONDS
@@ -56,34 +63,76 @@ class Monitors {
         logger.info("All monitoring tasks scheduled");
     }
 
-    private void performTest(MonitorState state) {
-        CompletableFuture.supplyAsync(() -> {
-            final var result = executeTest(state);
-            state.addResult(result);
+    // Probes run without holding a thread; only the bookkeeping once a result arrives goes to the result executor
+    private void performTest(MonitorState state, long firedAt) {
+        executeTest(state).thenAcceptAsync(result -> {
+            final var snapshot = state.addResult(result);
+            stats.recordResult(System.nanoTime() - firedAt);
+            EventLog.record(state, result, snapshot);
 
             // Log significant status changes
-            if (!result.success() && state.getCurrentStatus() != MonitorStatus.OK) {
-                logger.warn("Monitor {} status: {} (consecutive failures: {})", state.destination.name(), state.getCurrentStatus(), state.getConsecutiveFailures());
-            } else if (result.success() && state.getCurrentStatus() == MonitorStatus.OK && state.getConsecutiveSuccesses() == state.destination.reset()) {
+            if (!result.success() && snapshot.status() != MonitorStatus.OK) {
+                logger.warn("Monitor {} status: {} (consecutive failures: {})", state.destination.name(), snapshot.status(), snapshot.consecutiveFailures());
+            } else if (result.success() && snapshot.status() == MonitorStatus.OK && snapshot.consecutiveSuccesses() == state.destination.reset()) {
                 logger.info("Monitor {} recovered to OK status", state.destination.name());
             }
-            return result;
-        }, testExecutor).exceptionally(throwable -> {
-            logger.error("Error executing test for {}: {}", state.destination.name(), throwable.getMessage(), throwable);
+        }, resultExecutor).exceptionally(throwable -> {
+            logger.error("Error recording test result for {}: {}", state.destination.name(), throwable.getMessage(), throwable);
             return null;
         });
     }
 
-    private TestResult executeTest(MonitorState state) {
+    private CompletableFuture<TestResult> executeTest(MonitorState state) {
+        final var test = state.destination.test();
+        final var timeout = state.destination.timeout();
+        final var budget = test.burst() != null ? BurstSampler.budget(test.burst(), timeout) : timeout;
+        final var deadline = Deadline.after(budget);
+        final var startTime = System.currentTimeMillis();
+
+        logger.trace("Executing {} test for {}", test.testMethod(), state.destination.name());
+        CompletableFuture<TestResult> pending;
         try {
-            logger.trace("Executing {} test for {}", state.destination.test().testMethod(), state.destination.name());
-            // Use the test implementation from the state
-            final var result = state.getTestImplementation().execute(state.destination.test(), state.destination.timeout());
-            logger.trace("Test {} for {} completed in {}ms: {}", state.destination.test().testMethod(), state.destination.name(), result.duration(), result.success() ? "SUCCESS" : "FAILURE");
-            return result;
+            final var stage = test.burst() != null
+                    ? BurstSampler.sample(state.getTestImplementation(), test, timeout, deadline)
+                    : state.getTestImplementation().execute(test, deadline);
+            pending = stage.toCompletableFuture().copy();
         } catch (Exception e) {
-            logger.debug("Test failed for {} : {}", state.destination.name(), e.getMessage());
-            return new TestResult(false, 0, LocalDateTime.now(), e.getMessage());
+            pending = CompletableFuture.failedFuture(e);
+        }
+
+        // A probe that misses its deadline is failed here and told to stop, whether or not it honours the deadline itself
+        return pending.orTimeout(budget + DEADLINE_GRACE_MS, TimeUnit.MILLISECONDS).handle((result, throwable) -> {
+            if (throwable == null) {
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Test {} for {} completed in {}ms: {}{}", test.testMethod(), state.destination.name(), result.duration(), result.success() ? "SUCCESS" : "FAILURE", result.phases() != null ? " " + result.phases() : "");
+                }
+                return result;
+            }
+            deadline.cancel();
+            final var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+            final var error = cause instanceof TimeoutException ? "Timed out after " + budget + "ms" : cause.getMessage();
+            logger.debug("Test failed for {} : {}", state.destination.name(), error);
+            return new TestResult(false, System.currentTimeMillis() - startTime, LocalDateTime.now(), error);
+        });
+    }
+
+    // Tracks when each fixed-rate run was due, so scheduler lag can be measured
+    private class ScheduledCheck implements Runnable {
+        private final MonitorState state;
+        private final long periodNanos;
+        private long due = System.nanoTime();
+
+        ScheduledCheck(MonitorState state) {
+            this.state = state;
+            this.periodNanos = TimeUnit.SECONDS.toNanos(state.destination.interval());
+        }
+
+        @Override
+        public void run() {
+            final var firedAt = System.nanoTime();
+            stats.recordLag(firedAt - due);
+            due += periodNanos;
+            performTest(state, firedAt);
         }
     }
 }
@@ -0,0 +1,129 @@
+package net.argus;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * History kept outside the heap as fixed columns (timestamp, duration, flags and, for URL tests, the five phase
+ * timings), allocated once per monitor and overwritten as a ring. The heap holds no per-result objects, so GC cost
+ * does not grow with history depth. Error messages are not retained; only the last result keeps its error.
+ */
+class OffHeapHistoryStore implements HistoryStore {
+    // No GC cost per result, so far deeper than the heap ring's 1000; still bounded, at 13-33 MB per monitor
+    static final int MAX_CAPACITY = 1 << 20;
+    private static final AtomicLong reservedBytes = new AtomicLong();
+    private static final Cleaner cleaner = Cleaner.create();
+    private static final byte SUCCESS = 1;
+    private static final byte TIMED = 2;
+    private static final int PHASES = PhaseTimings.COUNT;
+
+    private final int capacity;
+    private final MemorySegment timestamps;
+    private final MemorySegment durations;
+    private final MemorySegment flags;
+    private final MemorySegment phases;
+    private int head = 0;
+    private int size = 0;
+    private long lastAppend = Long.MIN_VALUE;
+    private final HistoryAggregates aggregates = new HistoryAggregates();
+
+    OffHeapHistoryStore(int capacity, boolean withPhases) {
+        this.capacity = Math.max(capacity, 1);
+        final var bytes = this.capacity * 8L + this.capacity * 4L + this.capacity + (withPhases ? this.capacity * 4L * PHASES : 0);
+
+        // Auto arena: the columns live as long as the store and are freed with it, never earlier
+        final var arena = Arena.ofAuto();
+        this.timestamps = arena.allocate(this.capacity * 8L, 8);
+        this.durations = arena.allocate(this.capacity * 4L, 4);
+        this.flags = arena.allocate(this.capacity, 1);
+        this.phases = withPhases ? arena.allocate(this.capacity * 4L * PHASES, 4) : null;
+        reservedBytes.addAndGet(bytes);
+        cleaner.register(this, () -> reservedBytes.addAndGet(-bytes)); // must not capture this, or the store never becomes unreachable
+    }
+
+    // Columns of stores still reachable; a dropped store's arena is freed by the GC, and its bytes leave the count with it
+    static long reservedBytes() {
+        return reservedBytes.get();
+    }
+
+    @Override
+    public synchronized void add(TestResult result) {
+        if (size == capacity) {
+            account(head, -1);
+        }
+        lastAppend = HeapHistoryStore.appendTime(lastAppend);
+        timestamps.setAtIndex(ValueLayout.JAVA_LONG, head, lastAppend);
+        durations.setAtIndex(ValueLayout.JAVA_INT, head, (int) Math.min(result.duration(), Integer.MAX_VALUE));
+
+        var flag = result.success() ? SUCCESS : 0;
+        if (phases != null && result.phases() != null) {
+            flag |= TIMED;
+            final var timings = result.phases();
+            for (var phase = 0; phase < PHASES; phase++) {
+                phases.setAtIndex(ValueLayout.JAVA_INT, phaseIndex(phase, head), (int) timings.get(phase));
+            }
+        }
+        flags.set(ValueLayout.JAVA_BYTE, head, (byte) flag);
+        account(head, 1);
+
+        head = (head + 1) % capacity;
+        size = Math.min(size + 1, capacity);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized double uptimePercentage() {
+        return aggregates.uptimePercentage(size);
+    }
+
+    @Override
+    public synchronized long durationPercentile(double percentile) {
+        return aggregates.durationPercentile(percentile, size, (scratch, count) -> MemorySegment.copy(durations, ValueLayout.JAVA_INT, 0, scratch, 0, count));
+    }
+
+    @Override
+    public synchronized PhaseTimings averagePhaseTimings() {
+        return aggregates.averagePhaseTimings();
+    }
+
+    // Reads the slot back from the columns, so an evicted result is taken out exactly as it was counted in
+    private void account(int index, int sign) {
+        final var flag = flags.get(ValueLayout.JAVA_BYTE, index);
+        aggregates.account((flag & SUCCESS) != 0, (flag & TIMED) != 0 ? phase -> phases.getAtIndex(ValueLayout.JAVA_INT, phaseIndex(phase, index)) : null, sign);
+    }
+
+    @Override
+    public synchronized HistoryRange range(long fromMs, long toMs) {
+        final var oldest = size < capacity ? 0 : head;
+        final var first = HistoryRange.lowerBound(size, fromMs, i -> timestamps.getAtIndex(ValueLayout.JAVA_LONG, (oldest + i) % capacity));
+        final var last = HistoryRange.lowerBound(size, toMs, i -> timestamps.getAtIndex(ValueLayout.JAVA_LONG, (oldest + i) % capacity));
+        if (first >= last) {
+            return HistoryRange.EMPTY;
+        }
+
+        // The range is contiguous in the columns except where it wraps past the end of the ring
+        final var count = last - first;
+        final var range = new HistoryRange(new long[count], new int[count], new boolean[count]);
+        final var start = (oldest + first) % capacity;
+        final var leading = Math.min(count, capacity - start);
+        MemorySegment.copy(timestamps, ValueLayout.JAVA_LONG, start * 8L, range.timestamps(), 0, leading);
+        MemorySegment.copy(timestamps, ValueLayout.JAVA_LONG, 0, range.timestamps(), leading, count - leading);
+        MemorySegment.copy(durations, ValueLayout.JAVA_INT, start * 4L, range.durations(), 0, leading);
+        MemorySegment.copy(durations, ValueLayout.JAVA_INT, 0, range.durations(), leading, count - leading);
+        for (var n = 0; n < count; n++) {
+            range.success()[n] = (flags.get(ValueLayout.JAVA_BYTE, (start + n) % capacity) & SUCCESS) != 0;
+        }
+        return range;
+    }
+
+    private long phaseIndex(int phase, int index) {
+        return (long) phase * capacity + index;
+    }
+}
@@ -0,0 +1,27 @@
+package net.argus;
+
+// A phase that never completed (the exchange failed first, or it does not apply, like TLS over plain http) is -1
+public record PhaseTimings(long resolve, long connect, long tls, long firstByte, long body) {
+    public static final int COUNT = 5;
+
+    public long get(int phase) {
+        return switch (phase) {
+            case 0 -> resolve;
+            case 1 -> connect;
+            case 2 -> tls;
+            case 3 -> firstByte;
+            default -> body;
+        };
+    }
+
+    // Each phase averaged over the results in which it completed; null if none did
+    static PhaseTimings average(long[] sums, int[] counts) {
+        final var averages = new long[COUNT];
+        var any = false;
+        for (var phase = 0; phase < COUNT; phase++) {
+            averages[phase] = counts[phase] > 0 ? sums[phase] / counts[phase] : -1;
+            any |= counts[phase] > 0;
+        }
+        return any ? new PhaseTimings(averages[0], averages[1], averages[2], averages[3], averages[4]) : null;
+    }
+}
@@ -1,11 +1,15 @@
 package net.argus;
 
 public record TestConfig (
-      TestMethod testMethod
+      String testMethod
     , Protocol protocol
     , int port
     , String url
     , String proxy
     , String host
+    , UdpPayload payload
+    , String query
+    , BodyExpectation expect
+    , Burst burst
 ) {}
 
@@ -1,24 +1,33 @@
 package net.argus;
 
+import net.argus.tests.BurstSampler;
 import net.argus.tests.NetworkTest;
-import net.argus.tests.NetworkTestConnect;
-import net.argus.tests.NetworkTestPing;
-import net.argus.tests.NetworkTestUrl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class TestFactory {
-    private static final Map<TestMethod, NetworkTest> testImplementations = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(TestFactory.class);
+    private static final Map<String, NetworkTest> testImplementations = new ConcurrentHashMap<>();
 
+    // Built-in probes and any plugin jar on the classpath register through META-INF/services/net.argus.tests.NetworkTest
     static {
-        testImplementations.put(TestMethod.Ping, new NetworkTestPing());
-        testImplementations.put(TestMethod.Connect, new NetworkTestConnect());
-        testImplementations.put(TestMethod.URL, new NetworkTestUrl());
+        for (var test : ServiceLoader.load(NetworkTest.class)) {
+            final var previous = testImplementations.putIfAbsent(test.method(), test);
+            if (previous != null) {
+                logger.warn("Ignoring {} for test method {}: already provided by {}", test.getClass().getName(), test.method(), previous.getClass().getName());
+            } else {
+                logger.debug("Registered test method {} ({})", test.method(), test.getClass().getName());
+            }
+        }
     }
 
-    public static NetworkTest getTest(TestMethod testMethod) {
-        if (testMethod == null) {
+    public static NetworkTest getTest(String testMethod) {
+        if (testMethod == null || testMethod.trim().isEmpty()) {
             throw new IllegalArgumentException("Test method cannot be null or empty");
         }
 
@@ -30,20 +39,24 @@ public class TestFactory {
         return test;
     }
 
-    public static void registerTest(TestMethod method, NetworkTest implementation) {
-        if (method == null || implementation == null) {
-            throw new IllegalArgumentException("Method and implementation cannot be null");
+    public static void registerTest(NetworkTest implementation) {
+        if (implementation == null || implementation.method() == null) {
+            throw new IllegalArgumentException("Implementation and its method cannot be null");
         }
-        testImplementations.put(method, implementation);
+        testImplementations.put(implementation.method(), implementation);
     }
 
-    public static java.util.Set<TestMethod> getSupportedMethods() {
+    public static Set<String> getSupportedMethods() {
         return testImplementations.keySet();
     }
 
     public static String validateAndDescribe(TestConfig config) {
         NetworkTest test = getTest(config.testMethod());
         test.validateConfig(config);
+        if (config.burst() != null) {
+            BurstSampler.validate(config);
+            return test.getDescription(config) + String.format(" [burst %dx%dms]", config.burst().count(), config.burst().spacing());
+        }
         return test.getDescription(config);
     }
-}
\ No newline at end of file
+}
@@ -1,5 +0,0 @@
-package net.argus;
-
-public enum TestMethod {
-    Ping, Connect, URL
-}
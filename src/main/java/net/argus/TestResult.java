@@ -4,28 +4,52 @@ import net.argus.tests.NetworkTest;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
-public record TestResult(boolean success, long duration, LocalDateTime timestamp, String error) {}
+public record TestResult(boolean success, long duration, LocalDateTime timestamp, String error, PhaseTimings phases, BurstStats burst) {
+    public TestResult(boolean success, long duration, LocalDateTime timestamp, String error) {
+        this(success, duration, timestamp, error, null, null);
+    }
+}
 
 enum MonitorStatus {
     OK, WARNING, FAILURE
 }
 
+// Everything a reader needs about one monitor, published as a unit after each result
+record MonitorSnapshot(
+      MonitorStatus status
+    , MonitorStatus previousStatus
+    , int consecutiveFailures
+    , int consecutiveSuccesses
+    , TestResult lastResult
+    , double uptimePercentage
+    , long p95
+    , PhaseTimings averagePhases
+    , long checks
+) {
+    static final MonitorSnapshot INITIAL = new MonitorSnapshot(MonitorStatus.OK, MonitorStatus.OK, 0, 0, null, 0.0, -1, null, 0);
+
+    boolean statusChanged() {
+        return status != previousStatus;
+    }
+}
+
 class MonitorState {
+    // A percentile is a pass over the whole history, so a busy monitor refreshes it at most this often, not per result
+    private static final long P95_REFRESH_NANOS = 1_000_000_000L;
+
     final Destination destination;
     final Group group;
-    private final Deque<TestResult> history = new ConcurrentLinkedDeque<>();
-    private int consecutiveFailures = 0;
-    private int consecutiveSuccesses = 0;
-    private MonitorStatus currentStatus = MonitorStatus.OK;
-    private volatile TestResult lastResult;
+    private final HistoryStore history;
+    private volatile MonitorSnapshot snapshot = MonitorSnapshot.INITIAL;
+    private long p95At; // writer only, under the monitor lock
     private final NetworkTest testImplementation;
     private final String testDescription;
 
-    public MonitorState(Destination destination, Group group) {
+    public MonitorState(Destination destination, Group group, HistoryStore history) {
         this.destination = destination;
         this.group = group;
+        this.history = history;
         final var testConfigWithHost = new TestConfig(
               destination.test().testMethod()
             , destination.test().protocol()
@@ -33,6 +57,10 @@ class MonitorState {
             , destination.test().url()
             , destination.test().proxy()
             , destination.test().host()  // Add the host from destination
+            , destination.test().payload()
+            , destination.test().query()
+            , destination.test().expect()
+            , destination.test().burst()
         );
 
         this.testImplementation = TestFactory.getTest(testConfigWithHost.testMethod());
@@ -43,18 +71,39 @@ class MonitorState {
         return group.group();
     }
 
-    public synchronized void addResult(TestResult result) {
-        this.lastResult = result;
+    // Writers are serialized per monitor; readers only ever see whole snapshots through the volatile field
+    public synchronized MonitorSnapshot addResult(TestResult result) {
+        final var previous = snapshot;
+        var consecutiveFailures = previous.consecutiveFailures();
+        var consecutiveSuccesses = previous.consecutiveSuccesses();
+        var currentStatus = previous.status();
 
-        // Add to history and maintain size limit (cap at reasonable maximum)
-        history.addLast(result);
-        final var maxHistory = Math.min(destination.history(), 1000); // Cap at 1000 records max
-        while (history.size() > maxHistory) {
-            history.removeFirst();
-        }
+        // Add to history; the store keeps a fixed-size ring
+        history.add(result);
+
+        // A burst whose loss reaches its warning level still succeeds, but counts as degraded
+        final var burst = destination.test().burst();
+        final var lossy = burst != null && burst.warning() > 0 && result.burst() != null && result.burst().loss() >= burst.warning();
 
         // Update status based on consecutive results
-        if (result.success()) {
+        if (result.success() && lossy && currentStatus == MonitorStatus.FAILURE) {
+            // Answering again, so it counts toward leaving FAILURE, but only as far as WARNING
+            consecutiveSuccesses++;
+            consecutiveFailures = 0;
+            if (consecutiveSuccesses >= destination.reset()) {
+                currentStatus = MonitorStatus.WARNING;
+                consecutiveSuccesses = 0;
+            }
+        } else if (result.success() && lossy) {
+            // Counts toward WARNING like a failure, but never pushes the streak past the warning level
+            consecutiveSuccesses = 0;
+            if (consecutiveFailures < destination.warning()) {
+                consecutiveFailures++;
+            }
+            if (consecutiveFailures >= destination.warning()) {
+                currentStatus = MonitorStatus.WARNING;
+            }
+        } else if (result.success()) {
             consecutiveSuccesses++;
             consecutiveFailures = 0;
 
@@ -74,38 +123,59 @@ class MonitorState {
                 currentStatus = MonitorStatus.WARNING;
             }
         }
+
+        final var now = System.nanoTime();
+        var p95 = previous.p95();
+        if (previous.checks() == 0 || now - p95At >= P95_REFRESH_NANOS) {
+            p95 = history.durationPercentile(95);
+            p95At = now;
+        }
+
+        final var next = new MonitorSnapshot(
+              currentStatus
+            , previous.status()
+            , consecutiveFailures
+            , consecutiveSuccesses
+            , result
+            , history.uptimePercentage()
+            , p95
+            , history.averagePhaseTimings()
+            , previous.checks() + 1
+        );
+        snapshot = next;
+        return next;
+    }
+
+    public MonitorSnapshot snapshot() {
+        return snapshot;
     }
 
     public MonitorStatus getCurrentStatus() {
-        return currentStatus;
+        return snapshot.status();
     }
 
     public TestResult getLastResult() {
-        return lastResult;
+        return snapshot.lastResult();
     }
 
     public double getUptimePercentage() {
-        if (history.isEmpty()) {
-            return 0.0;
-        }
-
-        final var successful = history.stream()
-                .mapToLong(r -> r.success() ? 1 : 0)
-                .sum();
+        return snapshot.uptimePercentage();
+    }
 
-        return (double) successful / history.size() * 100.0;
+    public long getP95Duration() {
+        return snapshot.p95();
     }
 
-    public List<TestResult> getHistory() {
-        return new ArrayList<>(history);
+    public HistoryRange getHistory(long fromMs, long toMs) {
+        return history.range(fromMs, toMs);
     }
 
     public int getConsecutiveFailures() {
-        return consecutiveFailures;
+        return snapshot.consecutiveFailures();
     }
 
     public int getConsecutiveSuccesses() {
-        return consecutiveSuccesses;
+        return snapshot.consecutiveSuccesses();
     }
 
     public NetworkTest getTestImplementation() {
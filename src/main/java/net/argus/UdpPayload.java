@@ -0,0 +1,5 @@
+package net.argus;
+
+public enum UdpPayload {
+    DNS, NTP, SNMP, HEX
+}
@@ -1,5 +1,6 @@
 package net.argus;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
@@ -8,19 +9,30 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 class WebServer {
     private static final Logger logger = LoggerFactory.getLogger(WebServer.class);
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final int DEFAULT_POINTS = 300;
+    private static final int MAX_POINTS = 10_000;
     private final HttpServer server;
     private final MonitorConfig config;
     private final Map<String, MonitorState> monitors;
+    private final Federation federation;
+    private final long startedAt = System.currentTimeMillis();
 
-    WebServer(MonitorConfig config, Map<String, MonitorState> monitors) throws Exception {
+    WebServer(MonitorConfig config, Map<String, MonitorState> monitors, Federation federation) throws Exception {
         this.config = config;
         this.monitors = monitors;
+        this.federation = federation;
         final var parts = config.listen().split(":");
         final var host = parts[0];
         final var port = Integer.parseInt(parts[1]);
@@ -29,6 +41,8 @@ class WebServer {
 
         server = HttpServer.create(address, 0);
         server.createContext("/", new StatusHandler());
+        server.createContext("/api/history", new HistoryHandler());
+        server.createContext("/api/status", new StatusApiHandler());
         server.setExecutor(null);
         server.start();
 
@@ -84,6 +98,9 @@ class WebServer {
                     .last-updated { text-align: center; margin-top: 20px; color: #7f8c8d; font-style: italic; }
                     .uptime-bar { width: 100px; height: 20px; background-color: #ecf0f1; border-radius: 10px; overflow: hidden; position: relative; }
                     .uptime-fill { height: 100%%; background-color: #27ae60; transition: width 0.3s ease; }
+                    .breakdown { color: #7f8c8d; font-size: 11px; white-space: nowrap; }
+                    .site-header { color: #2c3e50; font-size: 22px; font-weight: bold; margin: 30px 0 10px 0; }
+                    .stale { opacity: 0.5; }
                 </style>
             </head>
             <body>
@@ -104,85 +121,54 @@ class WebServer {
                 .sorted(Comparator.comparingInt((Map.Entry<Group, List<MonitorState>> e) -> e.getKey().sort()).thenComparing(e -> e.getKey().group()))
             .toList();
 
+            if (federation.isEnabled()) {
+                html.append("<div class=\"site-header\">%s</div>\n".formatted(escape(config.name())));
+            }
+
             for (var groupEntry : sortedGroups) {
                 final var group = groupEntry.getKey();
                 final var states = groupEntry.getValue();
                 states.sort(Comparator.comparing(s -> s.destination.sort()));
 
-                html.append("""
-                <div class="group">
-                    <div class="group-header">%s</div>
-                    <table class="monitor-table">
-                        <thead>
-                            <tr>
-                                <th>Service</th>
-                                <th>Host</th>
-                                <th>Status</th>
-                                <th>Response Time</th>
-                                <th>Uptime</th>
-                                <th>Last Check</th>
-                                <th>Details</th>
-                            </tr>
-                        </thead>
-                        <tbody>
-                """.formatted(group.group()));
+                appendGroupStart(html, group.group(), false);
 
                 // Sort by destination sort order
                 for (var state : states) {
-                    final var statusClass = switch (state.getCurrentStatus()) {
-                        case OK -> "status-ok";
-                        case WARNING -> "status-warning";
-                        case FAILURE -> "status-error";
-                    };
-
-                    final var statusText = switch (state.getCurrentStatus()) {
-                        case OK -> "OK";
-                        case WARNING -> "WARNING";
-                        case FAILURE -> "FAILURE";
-                    };
-
-                    final var lastResult = state.getLastResult();
+                    // One snapshot per row, so status, timing and uptime always come from the same result
+                    final var snapshot = state.snapshot();
+                    final var lastResult = snapshot.lastResult();
                     final var lastCheck = lastResult != null ?
                             lastResult.timestamp().format(DateTimeFormatter.ofPattern("HH:mm:ss")) : "Never";
 
-                    final var responseTime = lastResult != null ? lastResult.duration() + "ms" : "N/A";
-                    final var uptimePercent = state.getUptimePercentage();
-
-                    final var testDetails = state.getTestDescription();
-
-                    html.append("""
-                            <tr>
-                                <td>%s</td>
-                                <td>%s</td>
-                                <td class="%s">%s</td>
-                                <td>%s</td>
-                                <td>
-                                    <div class="uptime-bar">
-                                        <div class="uptime-fill" style="width: %.1f%%"></div>
-                                    </div>
-                                    %.1f%%
-                                </td>
-                                <td>%s</td>
-                                <td>%s</td>
-                            </tr>
-                    """.formatted(
-                            state.destination.name(),
-                            state.destination.test().host(),
-                            statusClass,
-                            statusText,
-                            responseTime,
-                            uptimePercent,
-                            uptimePercent,
-                            lastCheck,
-                            testDetails
-                    ));
+                    final var responseTime = lastResult != null ? lastResult.duration() + "ms" + formatPercentile(snapshot.p95()) + formatPhases(snapshot.averagePhases()) + formatBurst(lastResult.burst()) : "N/A";
+
+                    appendRow(html, state.destination.name(), state.destination.test().host(), snapshot.status(), responseTime, snapshot.uptimePercentage(), lastCheck, state.getTestDescription() + formatError(lastResult != null ? lastResult.error() : null));
                 }
 
-                html.append("""
-                        </tbody>
-                    </table>
-                </div>
-                """);
+                appendGroupEnd(html);
+            }
+
+            // Remote sites come from the federation cache only, never from a request made while rendering
+            final var now = System.currentTimeMillis();
+            for (var site : federation.sites()) {
+                final var stale = site.isStale(now);
+                final var updated = site.updatedAt() > 0 ? "updated " + formatTime(site.updatedAt()) : "never reached";
+                html.append("<div class=\"site-header%s\">%s%s <span class=\"breakdown\">%s%s</span></div>\n".formatted(
+                        stale ? " stale" : "",
+                        escape(site.site()),
+                        site.name() != null && !site.name().equals(site.site()) ? " (" + escape(site.name()) + ")" : "",
+                        stale ? "STALE, " : "",
+                        updated + (site.error() != null ? ": " + escape(site.error()) : "")));
+
+                for (var group : site.groups().stream().sorted(Comparator.comparingInt(Federation.RemoteGroup::sort)).toList()) {
+                    appendGroupStart(html, group.group(), stale);
+                    for (var monitor : group.monitors()) {
+                        final var responseTime = monitor.duration() >= 0 ? monitor.duration() + "ms" + formatPercentile(monitor.p95()) + formatPhases(monitor.phases()) + formatBurst(monitor.burst()) : "N/A";
+                        final var lastCheck = monitor.lastCheck() > 0 ? formatTime(monitor.lastCheck()) : "Never";
+                        appendRow(html, escape(monitor.name()), escape(monitor.host()), monitor.status(), responseTime, monitor.uptime(), lastCheck, escape(monitor.description()) + formatError(monitor.error()));
+                    }
+                    appendGroupEnd(html);
+                }
             }
 
             html.append("""
@@ -195,5 +181,334 @@ class WebServer {
 
             return html.toString();
         }
+
+        private void appendGroupStart(StringBuilder html, String title, boolean stale) {
+            html.append("""
+            <div class="group%s">
+                <div class="group-header">%s</div>
+                <table class="monitor-table">
+                    <thead>
+                        <tr>
+                            <th>Service</th>
+                            <th>Host</th>
+                            <th>Status</th>
+                            <th>Response Time</th>
+                            <th>Uptime</th>
+                            <th>Last Check</th>
+                            <th>Details</th>
+                        </tr>
+                    </thead>
+                    <tbody>
+            """.formatted(stale ? " stale" : "", title));
+        }
+
+        private void appendGroupEnd(StringBuilder html) {
+            html.append("""
+                    </tbody>
+                </table>
+            </div>
+            """);
+        }
+
+        private void appendRow(StringBuilder html, String name, String host, MonitorStatus status, String responseTime, double uptimePercent, String lastCheck, String details) {
+            final var statusClass = switch (status) {
+                case OK -> "status-ok";
+                case WARNING -> "status-warning";
+                case FAILURE -> "status-error";
+            };
+
+            final var statusText = switch (status) {
+                case OK -> "OK";
+                case WARNING -> "WARNING";
+                case FAILURE -> "FAILURE";
+            };
+
+            html.append("""
+                        <tr>
+                            <td>%s</td>
+                            <td>%s</td>
+                            <td class="%s">%s</td>
+                            <td>%s</td>
+                            <td>
+                                <div class="uptime-bar">
+                                    <div class="uptime-fill" style="width: %.1f%%"></div>
+                                </div>
+                                %.1f%%
+                            </td>
+                            <td>%s</td>
+                            <td>%s</td>
+                        </tr>
+                """.formatted(
+                        name,
+                        host,
+                        statusClass,
+                        statusText,
+                        responseTime,
+                        uptimePercent,
+                        uptimePercent,
+                        lastCheck,
+                        details
+                ));
+        }
+
+        private String formatTime(long epochMs) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        }
+
+        // Remote sites are other people's config, so their text is escaped before it reaches the page
+        private String escape(String text) {
+            if (text == null) {
+                return "";
+            }
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+        }
+
+        private String formatPhases(PhaseTimings phases) {
+            if (phases == null) {
+                return "";
+            }
+            // Phases no check ever completed (e.g. TLS on a plain http monitor) are left out
+            final var labels = new String[] {"DNS", "TCP", "TLS", "TTFB", "Body"};
+            final var parts = new StringJoiner(" / ");
+            for (var phase = 0; phase < PhaseTimings.COUNT; phase++) {
+                if (phases.get(phase) >= 0) {
+                    parts.add(labels[phase] + " " + phases.get(phase));
+                }
+            }
+            return "<div class=\"breakdown\" title=\"Average per phase over history\">" + parts + " ms</div>";
+        }
+
+        // Errors carry text from the network (reason phrases, remote sites), so they are escaped like remote config
+        private String formatError(String error) {
+            return error == null || error.isEmpty() ? "" : "<div class=\"breakdown\" title=\"Last error\">%s</div>".formatted(escape(error));
+        }
+
+        private String formatPercentile(long p95) {
+            return p95 < 0 ? "" : "<div class=\"breakdown\">p95 %d ms</div>".formatted(p95);
+        }
+
+        private String formatBurst(BurstStats burst) {
+            if (burst == null) {
+                return "";
+            }
+            return "<div class=\"breakdown\">Loss %.0f%% (%d/%d) / Jitter %.1f ms</div>".formatted(
+                    burst.loss(), burst.received(), burst.sent(), burst.jitter());
+        }
+    }
+
+    // Current state of the local monitors, as polled by federating instances. The ETag is the total number of checks
+    // recorded since this instance started, so it changes with every new result and a 304 costs no serialization.
+    private class StatusApiHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logger.debug("HTTP request from {}: {} {}",
+                    exchange.getRemoteAddress(), exchange.getRequestMethod(), exchange.getRequestURI());
+
+            try (exchange) {
+                final var states = monitors.values().stream()
+                        .sorted(Comparator.comparingInt((MonitorState state) -> state.group.sort()).thenComparing(state -> state.group.group()).thenComparingInt(state -> state.destination.sort()))
+                        .toList();
+                final var snapshots = new ArrayList<MonitorSnapshot>(states.size());
+                var checks = 0L;
+                for (var state : states) {
+                    final var snapshot = state.snapshot();
+                    snapshots.add(snapshot);
+                    checks += snapshot.checks();
+                }
+
+                final var etag = "\"" + startedAt + "-" + checks + "\"";
+                exchange.getResponseHeaders().set("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, 0);
+                try (var json = jsonFactory.createGenerator(exchange.getResponseBody())) {
+                    json.writeStartObject();
+                    json.writeStringField("name", config.name());
+                    json.writeArrayFieldStart("groups");
+                    Group current = null;
+                    for (var i = 0; i < states.size(); i++) {
+                        final var state = states.get(i);
+                        if (state.group != current) {
+                            if (current != null) {
+                                json.writeEndArray();
+                                json.writeEndObject();
+                            }
+                            current = state.group;
+                            json.writeStartObject();
+                            json.writeStringField("group", current.group());
+                            json.writeNumberField("sort", current.sort());
+                            json.writeArrayFieldStart("monitors");
+                        }
+
+                        final var snapshot = snapshots.get(i);
+                        final var last = snapshot.lastResult();
+                        json.writeStartObject();
+                        json.writeStringField("name", state.destination.name());
+                        json.writeStringField("host", state.destination.test().host());
+                        json.writeStringField("status", snapshot.status().name());
+                        json.writeNumberField("duration", last != null ? last.duration() : -1);
+                        json.writeNumberField("p95", snapshot.p95());
+                        json.writeNumberField("uptime", snapshot.uptimePercentage());
+                        json.writeNumberField("lastCheck", last != null ? last.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1);
+                        json.writeStringField("error", last != null ? last.error() : null);
+                        json.writeStringField("description", state.getTestDescription());
+                        json.writeNumberField("checks", snapshot.checks());
+                        final var phases = snapshot.averagePhases();
+                        if (phases != null) {
+                            json.writeObjectFieldStart("phases");
+                            json.writeNumberField("resolve", phases.resolve());
+                            json.writeNumberField("connect", phases.connect());
+                            json.writeNumberField("tls", phases.tls());
+                            json.writeNumberField("firstByte", phases.firstByte());
+                            json.writeNumberField("body", phases.body());
+                            json.writeEndObject();
+                        }
+                        final var burst = last != null ? last.burst() : null;
+                        if (burst != null) {
+                            json.writeObjectFieldStart("burst");
+                            json.writeNumberField("sent", burst.sent());
+                            json.writeNumberField("received", burst.received());
+                            json.writeNumberField("meanRtt", burst.meanRtt());
+                            json.writeNumberField("jitter", burst.jitter());
+                            json.writeEndObject();
+                        }
+                        json.writeEndObject();
+                    }
+                    if (current != null) {
+                        json.writeEndArray();
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                    json.writeEndObject();
+                }
+            }
+        }
+    }
+
+    // /api/history?monitor=group:name&from=&to=&step=&percentile= ; from/to as epoch ms or ISO-8601 instants, step as ms or an ISO-8601 duration
+    private class HistoryHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            logger.debug("HTTP request from {}: {} {}",
+                    exchange.getRemoteAddress(), exchange.getRequestMethod(), exchange.getRequestURI());
+
+            try (exchange) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Only GET is supported");
+                    return;
+                }
+
+                final var params = parseQuery(exchange.getRequestURI().getRawQuery());
+                final var key = params.get("monitor");
+                if (key == null) {
+                    sendError(exchange, 400, "Parameter 'monitor' (group:name) is required");
+                    return;
+                }
+                final var state = monitors.get(key);
+                if (state == null) {
+                    sendError(exchange, 404, "Unknown monitor: " + key);
+                    return;
+                }
+
+                final long from;
+                final long to;
+                final double percentile;
+                final Long requestedStep;
+                try {
+                    to = params.containsKey("to") ? parseInstant(params.get("to")) : System.currentTimeMillis() + 1;
+                    from = params.containsKey("from") ? parseInstant(params.get("from")) : Long.MIN_VALUE;
+                    requestedStep = params.containsKey("step") ? parseStep(params.get("step")) : null;
+                    percentile = params.containsKey("percentile") ? Double.parseDouble(params.get("percentile")) : 95.0;
+                } catch (RuntimeException e) {
+                    sendError(exchange, 400, "Invalid parameter: " + e.getMessage());
+                    return;
+                }
+                if (from >= to || !(percentile > 0 && percentile <= 100) || (requestedStep != null && requestedStep <= 0)) {
+                    sendError(exchange, 400, "Expected from < to, step > 0 and 0 < percentile <= 100");
+                    return;
+                }
+
+                // Empty buckets are never emitted, so both the default step and the bucket limit measure from the first result
+                final var range = state.getHistory(from, to);
+                final long origin;
+                final long step;
+                final List<HistoryRange.Bucket> buckets;
+                try {
+                    final var first = range.size() > 0 ? range.timestamps()[0] : to;
+                    step = requestedStep != null ? requestedStep : Math.max(1, Math.ceilDiv(Math.subtractExact(to, first), DEFAULT_POINTS));
+                    origin = from != Long.MIN_VALUE ? HistoryRange.alignDown(first, from, step) : first;
+                    if (range.size() > 0 && Math.subtractExact(range.timestamps()[range.size() - 1], origin) / step >= MAX_POINTS) {
+                        sendError(exchange, 400, "Step too small: more than " + MAX_POINTS + " buckets");
+                        return;
+                    }
+                    buckets = range.downsample(origin, step, percentile);
+                } catch (ArithmeticException e) {
+                    sendError(exchange, 400, "Range and step overflow");
+                    return;
+                }
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, 0);
+                try (var json = jsonFactory.createGenerator(exchange.getResponseBody())) {
+                    final var percentileField = "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile));
+                    json.writeStartObject();
+                    json.writeStringField("monitor", key);
+                    json.writeNumberField("from", origin);
+                    json.writeNumberField("to", to);
+                    json.writeNumberField("step", step);
+                    json.writeArrayFieldStart("buckets");
+                    for (var bucket : buckets) {
+                        json.writeStartObject();
+                        json.writeNumberField("t", bucket.start());
+                        json.writeNumberField("count", bucket.count());
+                        json.writeNumberField("success", bucket.successRatio());
+                        json.writeNumberField("min", bucket.min());
+                        json.writeNumberField("avg", bucket.avg());
+                        json.writeNumberField("max", bucket.max());
+                        json.writeNumberField(percentileField, bucket.percentile());
+                        json.writeEndObject();
+                    }
+                    json.writeEndArray();
+                    json.writeEndObject();
+                }
+                logger.trace("Served {} history buckets for {}", buckets.size(), key);
+            }
+        }
+
+        private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, 0);
+            try (var json = jsonFactory.createGenerator(exchange.getResponseBody())) {
+                json.writeStartObject();
+                json.writeStringField("error", message);
+                json.writeEndObject();
+            }
+        }
+
+        private Map<String, String> parseQuery(String query) {
+            final var params = new HashMap<String, String>();
+            if (query == null) {
+                return params;
+            }
+            for (var pair : query.split("&")) {
+                final var eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+            return params;
+        }
+
+        private long parseInstant(String value) {
+            return value.chars().allMatch(Character::isDigit) ? Long.parseLong(value) : Instant.parse(value).toEpochMilli();
+        }
+
+        private long parseStep(String value) {
+            return value.chars().allMatch(Character::isDigit) ? Long.parseLong(value) : Duration.parse(value).toMillis();
+        }
     }
 }
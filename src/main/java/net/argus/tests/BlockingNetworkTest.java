@@ -0,0 +1,40 @@
+package net.argus.tests;
+
+import net.argus.TestConfig;
+import net.argus.TestResult;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Adapts a probe written against blocking sockets: each run gets its own virtual thread, interrupted if the deadline is cancelled
+public abstract class BlockingNetworkTest implements NetworkTest {
+    private static final ExecutorService blockingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    protected abstract TestResult executeBlocking(TestConfig config, int timeoutMs);
+
+    @Override
+    public CompletionStage<TestResult> execute(TestConfig config, Deadline deadline) {
+        final var future = new CompletableFuture<TestResult>();
+        final Future<?> task = blockingExecutor.submit(() -> {
+            try {
+                // Blocking socket APIs read a timeout of 0 as "wait forever", so a spent deadline fails here instead
+                final var timeoutMs = deadline.remainingMillis();
+                future.complete(timeoutMs > 0
+                        ? executeBlocking(config, timeoutMs)
+                        : new TestResult(false, 0, LocalDateTime.now(), "Deadline expired before the test started"));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        deadline.onCancel(() -> {
+            if (future.complete(new TestResult(false, 0, LocalDateTime.now(), "Cancelled"))) {
+                task.cancel(true);
+            }
+        });
+        return future;
+    }
+}
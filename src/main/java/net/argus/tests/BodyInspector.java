@@ -0,0 +1,214 @@
+package net.argus.tests;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import net.argus.BodyExpectation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+// Evaluates a BodyExpectation over a response stream chunk by chunk; memory stays fixed regardless of body size
+class BodyInspector {
+    static final int CHUNK_SIZE = 8192;
+    private static final int REGEX_OVERLAP = 1024; // longest regex match guaranteed to be found across chunk boundaries
+    // The parser holds a string token whole until it ends, so one huge value (a base64 blob) would otherwise be buffered
+    private static final int MAX_JSON_STRING = 64 * 1024;
+    private static final JsonFactory jsonFactory = JsonFactory.builder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(MAX_JSON_STRING).maxNameLength(MAX_JSON_STRING).build())
+            .build();
+
+    private final BodyExpectation expect;
+    private final byte[] needle;
+    private final int[] failure;
+    private int matched = 0;
+    private boolean containsFound;
+
+    private final Pattern pattern;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer pendingBytes;
+    private final CharBuffer window;
+    private boolean regexFound;
+
+    private final JsonParser json;
+    private final JsonPointer pointer;
+    private String jsonActual;
+    private JsonToken jsonContainer;
+    private boolean jsonFound;
+    private String jsonError;
+
+    private long total = 0;
+
+    // charset is the response's own; JSON is always read as UTF-8, which RFC 8259 requires of it
+    BodyInspector(BodyExpectation expect, Pattern pattern, Charset charset) throws IOException {
+        this.expect = expect;
+
+        this.needle = expect.contains() != null ? expect.contains().getBytes(charset) : null;
+        this.failure = needle != null ? failureTable(needle) : null;
+        this.containsFound = needle == null || needle.length == 0;
+
+        this.pattern = pattern;
+        this.decoder = pattern != null ? charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE) : null;
+        this.pendingBytes = pattern != null ? ByteBuffer.allocate(CHUNK_SIZE + 8) : null;
+        this.window = pattern != null ? CharBuffer.allocate(REGEX_OVERLAP + CHUNK_SIZE + 8) : null;
+        this.regexFound = pattern == null;
+
+        this.pointer = expect.jsonPointer() != null ? JsonPointer.compile(expect.jsonPointer()) : null;
+        this.json = pointer != null ? jsonFactory.createNonBlockingByteArrayParser() : null;
+        this.jsonFound = pointer == null;
+    }
+
+    // Reads the stream through a single fixed buffer; returns null when every expectation holds, otherwise the reason it does not
+    String inspect(InputStream in) throws IOException {
+        final var buffer = new byte[CHUNK_SIZE];
+        try {
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                total += n;
+                if (expect.maxBody() > 0 && total > expect.maxBody()) {
+                    return "Body exceeds " + expect.maxBody() + " bytes";
+                }
+                if (!satisfied()) {
+                    feed(buffer, n);
+                }
+                if (jsonError != null) {
+                    return jsonError; // the outcome is settled, and the rest of the body may never end
+                }
+            }
+            if (json != null && !jsonFound && jsonError == null) {
+                feedJson(null, 0);
+            }
+        } finally {
+            if (json != null) {
+                json.close();
+            }
+        }
+
+        if (!containsFound) {
+            return "Body does not contain '" + expect.contains() + "'";
+        }
+        if (!regexFound) {
+            return "Body does not match /" + expect.regex() + "/";
+        }
+        if (!jsonFound) {
+            if (jsonError != null) {
+                return jsonError;
+            }
+            if (jsonContainer != null) {
+                return "JSON " + expect.jsonPointer() + " is " + (jsonContainer == JsonToken.START_OBJECT ? "an object" : "an array") + ", expected '" + expect.jsonValue() + "'";
+            }
+            return jsonActual == null
+                    ? "JSON pointer " + expect.jsonPointer() + " not found"
+                    : "JSON " + expect.jsonPointer() + " is '" + jsonActual + "', expected '" + expect.jsonValue() + "'";
+        }
+        return null;
+    }
+
+    private boolean satisfied() {
+        return containsFound && regexFound && jsonFound;
+    }
+
+    private void feed(byte[] chunk, int length) throws IOException {
+        if (!containsFound) {
+            searchNeedle(chunk, length);
+        }
+        if (!regexFound) {
+            searchPattern(chunk, length);
+        }
+        if (!jsonFound && jsonError == null) {
+            feedJson(chunk, length);
+        }
+    }
+
+    // A null chunk ends the input. Once the body stops being parseable JSON, the pointer is given up on.
+    private void feedJson(byte[] chunk, int length) throws IOException {
+        final var feeder = (ByteArrayFeeder) json.getNonBlockingInputFeeder();
+        try {
+            if (chunk != null) {
+                feeder.feedInput(chunk, 0, length);
+            } else {
+                feeder.endOfInput();
+            }
+            drainJson();
+        } catch (StreamConstraintsException e) {
+            jsonError = "Body has a JSON string or name longer than " + MAX_JSON_STRING + " characters";
+        } catch (JsonProcessingException e) {
+            jsonError = "Body is not valid JSON";
+        }
+    }
+
+    // Knuth-Morris-Pratt keeps its match state between chunks, so no bytes need to be retained
+    private void searchNeedle(byte[] chunk, int length) {
+        for (var i = 0; i < length; i++) {
+            while (matched > 0 && chunk[i] != needle[matched]) {
+                matched = failure[matched - 1];
+            }
+            if (chunk[i] == needle[matched]) {
+                matched++;
+            }
+            if (matched == needle.length) {
+                containsFound = true;
+                return;
+            }
+        }
+    }
+
+    private void searchPattern(byte[] chunk, int length) {
+        pendingBytes.put(chunk, 0, length).flip();
+        decoder.decode(pendingBytes, window, false);
+        pendingBytes.compact(); // keeps a split multi-byte sequence for the next chunk
+
+        window.flip();
+        if (pattern.matcher(window).find()) {
+            regexFound = true;
+            return;
+        }
+
+        // Retain only the tail so matches spanning chunk boundaries are still seen
+        if (window.remaining() > REGEX_OVERLAP) {
+            window.position(window.limit() - REGEX_OVERLAP);
+        }
+        window.compact();
+    }
+
+    private void drainJson() throws IOException {
+        for (var token = json.nextToken(); token != null && token != JsonToken.NOT_AVAILABLE; token = json.nextToken()) {
+            // Right after a container opens, the context path is still the container's own
+            if ((token.isScalarValue() || token.isStructStart()) && pointer.equals(json.getParsingContext().pathAsPointer())) {
+                jsonContainer = token.isStructStart() ? token : null;
+                jsonActual = token.isScalarValue() ? json.getText() : null;
+                jsonFound = expect.jsonValue() == null || expect.jsonValue().equals(jsonActual);
+                if (jsonFound) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int[] failureTable(byte[] needle) {
+        final var table = new int[needle.length];
+        for (int i = 1, k = 0; i < needle.length; i++) {
+            while (k > 0 && needle[i] != needle[k]) {
+                k = table[k - 1];
+            }
+            if (needle[i] == needle[k]) {
+                k++;
+            }
+            table[i] = k;
+        }
+        return table;
+    }
+}
@@ -0,0 +1,84 @@
+package net.argus.tests;
+
+import net.argus.Burst;
+import net.argus.BurstStats;
+import net.argus.Protocol;
+import net.argus.TestConfig;
+import net.argus.TestResult;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+// Runs a burst of probes staggered by the configured spacing but overlapping in flight, so a burst takes
+// roughly (count - 1) * spacing + one timeout instead of count timeouts
+public class BurstSampler {
+    public static CompletionStage<TestResult> sample(NetworkTest test, TestConfig config, int timeoutMs, Deadline deadline) {
+        final var burst = config.burst();
+        final var probes = new ArrayList<CompletableFuture<TestResult>>(burst.count());
+        for (var i = 0; i < burst.count(); i++) {
+            final var delayed = CompletableFuture.delayedExecutor((long) i * burst.spacing(), TimeUnit.MILLISECONDS);
+            probes.add(CompletableFuture.supplyAsync(() -> deadline.child(timeoutMs), delayed)
+                    .thenCompose(probeDeadline -> test.execute(config, probeDeadline))
+                    .exceptionally(throwable -> new TestResult(false, 0, LocalDateTime.now(), throwable.getMessage())));
+        }
+        return CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> summarize(burst, probes.stream().map(CompletableFuture::join).toList()));
+    }
+
+    // Burst of the configured count spaced out, plus one timeout for the last probe
+    public static int budget(Burst burst, int timeoutMs) {
+        return (burst.count() - 1) * burst.spacing() + timeoutMs;
+    }
+
+    private static TestResult summarize(Burst burst, List<TestResult> results) {
+        var received = 0;
+        var rttSum = 0L;
+        var jitterSum = 0L;
+        var previousRtt = -1L;
+        String firstError = null;
+        for (var result : results) {
+            if (result.success()) {
+                received++;
+                rttSum += result.duration();
+                if (previousRtt >= 0) {
+                    jitterSum += Math.abs(result.duration() - previousRtt);
+                }
+                previousRtt = result.duration();
+            } else if (firstError == null) {
+                firstError = result.error();
+            }
+        }
+
+        final var meanRtt = received > 0 ? (double) rttSum / received : 0.0;
+        final var jitter = received > 1 ? (double) jitterSum / (received - 1) : 0.0;
+        final var stats = new BurstStats(burst.count(), received, meanRtt, jitter);
+        final var success = received > 0 && (burst.failure() <= 0 || stats.loss() < burst.failure());
+
+        String error = null;
+        if (received < burst.count()) {
+            error = String.format("Loss %.0f%% (%d/%d received)%s", stats.loss(), received, burst.count(), firstError != null ? ": " + firstError : "");
+        }
+        return new TestResult(success, Math.round(meanRtt), LocalDateTime.now(), error, null, stats);
+    }
+
+    public static void validate(TestConfig config) {
+        final var burst = config.burst();
+        if (burst.count() < 1) {
+            throw new IllegalArgumentException("Burst count must be positive");
+        }
+        if (burst.spacing() < 0) {
+            throw new IllegalArgumentException("Burst spacing cannot be negative");
+        }
+        if (burst.warning() < 0 || burst.warning() > 100 || burst.failure() < 0 || burst.failure() > 100) {
+            throw new IllegalArgumentException("Burst loss thresholds must be percentages (0-100)");
+        }
+        // Without a payload a UDP probe only sends, so every burst probe would "arrive" and loss would read 0%
+        if (config.protocol() == Protocol.UDP && config.payload() == null) {
+            throw new IllegalArgumentException("Burst over UDP needs a payload the target answers, so loss can be measured");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package net.argus.tests;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// When a probe must have answered by, and a way for the engine to call it off; probes release their sockets on cancel
+public final class Deadline {
+    private final long expiresAt;
+    private final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public static Deadline after(long timeoutMs) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    // A deadline no later than this one that is cancelled along with it
+    public Deadline child(long timeoutMs) {
+        final var child = new Deadline(Math.min(expiresAt, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)));
+        onCancel(child::cancel);
+        return child;
+    }
+
+    public int remainingMillis() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(expiresAt - System.nanoTime())));
+    }
+
+    public boolean isExpired() {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+    public void cancel() {
+        cancelled.complete(null);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.isDone();
+    }
+
+    // Runs immediately if already cancelled
+    public void onCancel(Runnable action) {
+        cancelled.thenRun(action);
+    }
+}
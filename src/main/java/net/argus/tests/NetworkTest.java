@@ -2,15 +2,23 @@ package net.argus.tests;
 
 import net.argus.TestConfig;
 import net.argus.TestResult;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.net.*;
-import java.time.LocalDateTime;
+import java.util.concurrent.CompletionStage;
 
+/*
+ * A probe type, discovered through ServiceLoader (META-INF/services/net.argus.tests.NetworkTest) and selected by
+ * the "method" of a destination's test config. execute must not block the calling thread: it returns a stage that
+ * completes with a TestResult (failures included) by the deadline, and stops work if the deadline is cancelled.
+ * Probes built on blocking I/O extend BlockingNetworkTest instead.
+ */
 public interface NetworkTest {
-    TestResult execute(TestConfig config, int timeoutMs);
+    String method();
+    CompletionStage<TestResult> execute(TestConfig config, Deadline deadline);
     String getDescription(TestConfig config);
     void validateConfig(TestConfig config) throws IllegalArgumentException;
-}
 
+    // Whether results carry PhaseTimings, so history stores can reserve room for them
+    default boolean reportsPhases() {
+        return false;
+    }
+}
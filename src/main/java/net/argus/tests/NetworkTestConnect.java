@@ -1,5 +1,6 @@
 package net.argus.tests;
 
+import net.argus.Protocol;
 import net.argus.TestConfig;
 import net.argus.TestResult;
 import org.slf4j.Logger;
@@ -7,59 +8,138 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class NetworkTestConnect implements NetworkTest {
     private static final Logger logger = LoggerFactory.getLogger(NetworkTestConnect.class);
+    private static final Executor resolver = Executors.newVirtualThreadPerTaskExecutor();
 
     @Override
-    public TestResult execute(TestConfig config, int timeoutMs) {
+    public String method() {
+        return "Connect";
+    }
+
+    @Override
+    public CompletionStage<TestResult> execute(TestConfig config, Deadline deadline) {
         final var startTime = System.currentTimeMillis();
-        var success = false;
-        String error = null;
+        final var timeoutMs = deadline.remainingMillis();
 
+        CompletableFuture<Void> probe;
         try {
             validateConfig(config);
-
-            success = switch (config.protocol()) {
-                case TCP -> testTcpConnection(config.host(), config.port(), timeoutMs);
-                case UDP -> testUdpConnection(config.host(), config.port(), timeoutMs);
-                case null, default -> throw new IllegalArgumentException("Unknown protocol: " + config.protocol());
-            };
-
+            probe = resolve(config.host()).thenCompose(address -> switch (config.protocol()) {
+                case TCP -> testTcpConnection(new InetSocketAddress(address, config.port()), deadline);
+                case UDP -> testUdpConnection(config, new InetSocketAddress(address, config.port()), deadline);
+            });
         } catch (Exception e) {
-            error = e.getMessage();
-            logger.debug("Connection test failed for {}:{} ({}): {}", config.host(), config.port(), config.protocol(), error);
+            probe = CompletableFuture.failedFuture(e);
         }
 
-        final var duration = System.currentTimeMillis() - startTime;
-        return new TestResult(success, duration, LocalDateTime.now(), error);
+        return probe.handle((ignored, throwable) -> {
+            String error = null;
+            if (throwable != null) {
+                final var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                error = cause instanceof TimeoutException
+                        ? (config.payload() != null ? "No " + config.payload() + " reply" : "Connect timed out") + " within " + timeoutMs + "ms"
+                        : cause.getMessage();
+                logger.debug("Connection test failed for {}:{} ({}): {}", config.host(), config.port(), config.protocol(), error);
+            }
+            final var duration = System.currentTimeMillis() - startTime;
+            return new TestResult(throwable == null, duration, LocalDateTime.now(), error);
+        });
     }
 
-    private boolean testTcpConnection(String host, int port, int timeoutMs) throws IOException {
-        try (var socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), timeoutMs);
+    // Name lookups block, so they run on a virtual thread; literal addresses skip the hop
+    private static CompletableFuture<InetAddress> resolve(String host) {
+        if (isLiteral(host)) {
+            try {
+                return CompletableFuture.completedFuture(InetAddress.getByName(host)); // parsed in place, no lookup
+            } catch (UnknownHostException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return InetAddress.getByName(host);
+            } catch (UnknownHostException e) {
+                throw new CompletionException(e);
+            }
+        }, resolver);
+    }
+
+    // IPv4 is digits and dots only, IPv6 always has a colon; no resolvable host name looks like either
+    static boolean isLiteral(String host) {
+        if (host.indexOf(':') >= 0) {
             return true;
         }
+        return !host.isEmpty() && host.chars().allMatch(c -> c == '.' || (c >= '0' && c <= '9'));
     }
 
-    private boolean testUdpConnection(String host, int port, int timeoutMs) throws IOException {
-        try (var socket = new DatagramSocket()) {
-            socket.setSoTimeout(timeoutMs);
-            final var address = InetAddress.getByName(host);
+    private CompletableFuture<Void> testTcpConnection(InetSocketAddress target, Deadline deadline) {
+        final var connected = new CompletableFuture<Void>();
+        final AsynchronousSocketChannel channel;
+        try {
+            channel = AsynchronousSocketChannel.open();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-            // Send empty UDP packet
-            final var buffer = new byte[0];
-            final var packet = new DatagramPacket(buffer, buffer.length, address, port);
-            socket.send(packet);
+        channel.connect(target, null, new CompletionHandler<Void, Void>() {
+            @Override
+            public void completed(Void result, Void attachment) {
+                connected.complete(null);
+            }
 
-            // For UDP, we consider it successful if no exception is thrown
-            return true;
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                connected.completeExceptionally(exc);
+            }
+        });
+        deadline.onCancel(() -> connected.cancel(false));
+        return connected.orTimeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, throwable) -> closeQuietly(channel));
+    }
+
+    private CompletableFuture<Void> testUdpConnection(TestConfig config, InetSocketAddress target, Deadline deadline) {
+        try {
+            final var engine = UdpProbeEngine.get();
+            if (config.payload() == null) {
+                // Without a payload there is no reply to wait for; we consider it successful if the send does not fail
+                engine.send(target, new byte[0]);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            final var reply = engine.probe(target, config.payload(), config.query(), deadline.remainingMillis());
+            deadline.onCancel(() -> reply.cancel(false));
+            return reply.thenApply(size -> null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static void closeQuietly(AsynchronousSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
         }
     }
 
     @Override
     public String getDescription(TestConfig config) {
+        if (config.payload() != null) {
+            return String.format("%s:%d (%s %s)",
+                    config.host(), config.port(), config.protocol(), config.payload());
+        }
         return String.format("%s:%d (%s)",
                 config.host(), config.port(), config.protocol());
     }
@@ -75,5 +155,11 @@ public class NetworkTestConnect implements NetworkTest {
         if (config.protocol() == null) {
             throw new IllegalArgumentException("Protocol must be 'tcp' or 'udp' for connection test");
         }
+        if (config.payload() != null) {
+            if (config.protocol() != Protocol.UDP) {
+                throw new IllegalArgumentException("Payload is only supported for UDP connection test");
+            }
+            UdpCodec.validate(config.payload(), config.query());
+        }
     }
 }
@@ -8,11 +8,16 @@ import org.slf4j.LoggerFactory;
 import java.net.InetAddress;
 import java.time.LocalDateTime;
 
-public class NetworkTestPing implements NetworkTest {
+public class NetworkTestPing extends BlockingNetworkTest {
     private static final Logger logger = LoggerFactory.getLogger(NetworkTestPing.class);
 
     @Override
-    public TestResult execute(TestConfig config, int timeoutMs) {
+    public String method() {
+        return "Ping";
+    }
+
+    @Override
+    protected TestResult executeBlocking(TestConfig config, int timeoutMs) {
         final var startTime = System.currentTimeMillis();
         var success = false;
         String error = null;
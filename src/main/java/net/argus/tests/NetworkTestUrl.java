@@ -1,95 +1,328 @@
 package net.argus.tests;
 
+import com.fasterxml.jackson.core.JsonPointer;
+import net.argus.BodyExpectation;
+import net.argus.PhaseTimings;
 import net.argus.TestConfig;
 import net.argus.TestResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.HttpURLConnection;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
-public class NetworkTestUrl implements NetworkTest {
+public class NetworkTestUrl extends BlockingNetworkTest {
     private static final Logger logger = LoggerFactory.getLogger(NetworkTestUrl.class);
+    private static final int MAX_REDIRECTS = 5;
+    private static final int MAX_HEADER_LINE = 8192;
+    private static final long MAX_BODY_BYTES = 16L << 20; // bodies are read, timed and inspected up to this size, then cut off
+    private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+    private final SSLSocketFactory tlsFactory; // null: the JVM default, looked up per exchange
+
+    public NetworkTestUrl() {
+        this(null);
+    }
+
+    NetworkTestUrl(SSLSocketFactory tlsFactory) {
+        this.tlsFactory = tlsFactory;
+    }
 
     @Override
-    public TestResult execute(TestConfig config, int timeoutMs) {
+    public String method() {
+        return "URL";
+    }
+
+    @Override
+    public boolean reportsPhases() {
+        return true;
+    }
+
+    @Override
+    protected TestResult executeBlocking(TestConfig config, int timeoutMs) {
         final var startTime = System.currentTimeMillis();
+        final var timer = new PhaseTimer();
         var success = false;
         String error = null;
 
         try {
             validateConfig(config);
-            success = performHttpRequest(config.url(), config.proxy(), timeoutMs);
+            // One deadline for every hop and phase; a socket timeout alone restarts on each read
+            final var deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+            final var response = performHttpRequest(config.url(), config.proxy(), config.expect(), deadline, timer);
+
+            // Consider success: 2xx status codes whose body meets the expectation, if any
+            success = response.status() >= 200 && response.status() < 300 && response.bodyFailure() == null;
+            error = response.bodyFailure();
+            if (!success) {
+                logger.debug("URL test failed for {}: HTTP {} {}{}", config.url(), response.status(), response.reason(),
+                        error != null ? ": " + error : "");
+            }
         } catch (Exception e) {
             error = e.getMessage();
             logger.debug("URL test failed for {}: {}", config.url(), error);
         }
 
         final var duration = System.currentTimeMillis() - startTime;
-        return new TestResult(success, duration, LocalDateTime.now(), error);
+        return new TestResult(success, duration, LocalDateTime.now(), error, timer.toTimings(), null);
     }
 
-    private boolean performHttpRequest(String urlString, String proxyUrl, int timeoutMs) throws Exception {
-        final var url = new URL(urlString);
-        HttpURLConnection connection = null;
+    // HttpURLConnection hides DNS, TCP and TLS inside connect(), so the exchange is driven by hand to time each phase
+    private Response performHttpRequest(String urlString, String proxyUrl, BodyExpectation expect, long deadline, PhaseTimer timer) throws Exception {
+        final var configured = proxyUrl != null && !proxyUrl.trim().isEmpty() ? configuredProxy(URI.create(proxyUrl)) : null;
+        var uri = URI.create(urlString);
 
-        try {
-            // Set up proxy if provided
-            if (proxyUrl != null && !proxyUrl.trim().isEmpty()) {
-                final var proxy = new URL(proxyUrl);
-                final var proxyHost = proxy.getHost();
-                final var proxyPort = proxy.getPort() != -1 ? proxy.getPort() :
-                        (proxy.getProtocol().equals("https") ? 443 : 80);
-
-                final var httpProxy = new Proxy(Proxy.Type.HTTP,
-                        new InetSocketAddress(proxyHost, proxyPort));
-                connection = (HttpURLConnection) url.openConnection(httpProxy);
-            } else {
-                connection = (HttpURLConnection) url.openConnection();
-            }
-
-            // Configure connection
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(timeoutMs);
-            connection.setReadTimeout(timeoutMs);
-            connection.setInstanceFollowRedirects(true);
-            connection.setUseCaches(false);
-
-            // Set reasonable User-Agent
-            connection.setRequestProperty("User-Agent",
-                    "Argus-Monitor/1.0 (Network Monitor)");
-            connection.setRequestProperty("Accept", "*/*");
-            connection.setRequestProperty("Connection", "close");
-
-            // Connect and get response
-            connection.connect();
-            final var responseCode = connection.getResponseCode();
-
-            // Consider success: 2xx status codes
-            final var success = responseCode >= 200 && responseCode < 300;
+        for (var redirects = 0; ; redirects++) {
+            final var response = exchange(uri, configured != null ? configured : selectProxy(uri), expect, deadline, timer);
+            final var location = response.headers().get("location");
 
-            if (!success) {
-                logger.debug("URL test failed for {}: HTTP {} {}",
-                        urlString, responseCode, connection.getResponseMessage());
+            if (response.status() >= 300 && response.status() < 400 && location != null && redirects < MAX_REDIRECTS) {
+                uri = uri.resolve(location);
+                if (!isHttp(uri)) {
+                    throw new IOException("Redirect to unsupported URL: " + uri);
+                }
+                continue;
+            }
+            return response;
+        }
+    }
+
+    private Response exchange(URI uri, Proxy proxy, BodyExpectation expect, long deadline, PhaseTimer timer) throws IOException {
+        final var https = "https".equalsIgnoreCase(uri.getScheme());
+        final var port = uri.getPort() != -1 ? uri.getPort() : (https ? 443 : 80);
+        final var viaHttp = proxy.type() == Proxy.Type.HTTP;
+        final var socks = proxy.type() == Proxy.Type.SOCKS;
+
+        timer.startHop();
+        var mark = System.nanoTime();
+        final InetSocketAddress endpoint;
+        if (socks) {
+            endpoint = InetSocketAddress.createUnresolved(uri.getHost(), port); // the SOCKS proxy resolves it, so there is no resolve phase
+        } else {
+            final var via = viaHttp ? (InetSocketAddress) proxy.address() : null;
+            endpoint = new InetSocketAddress(InetAddress.getByName(via != null ? via.getHostString() : uri.getHost()), via != null ? via.getPort() : port);
+            mark = timer.resolve(mark);
+        }
+
+        try (var raw = socks ? new Socket(proxy) : new Socket()) {
+            raw.connect(endpoint, remainingMillis(deadline));
+
+            if (viaHttp && https) {
+                openTunnel(raw, new DeadlineInputStream(raw, deadline), uri.getHost(), port);
+            }
+            mark = timer.connect(mark);
+
+            if (!https) {
+                return request(raw, new DeadlineInputStream(raw, deadline), uri, viaHttp, expect, mark, timer);
+            }
+
+            final var factory = tlsFactory != null ? tlsFactory : (SSLSocketFactory) SSLSocketFactory.getDefault();
+            try (var ssl = (SSLSocket) factory.createSocket(raw, uri.getHost(), port, true)) {
+                final var params = ssl.getSSLParameters();
+                params.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(params);
+                ssl.setSoTimeout(remainingMillis(deadline));
+                ssl.startHandshake();
+                mark = timer.tls(mark);
+
+                return request(ssl, new DeadlineInputStream(ssl, deadline), uri, false, expect, mark, timer);
+            }
+        }
+    }
+
+    private static Proxy configuredProxy(URI proxy) {
+        final var port = proxy.getPort() != -1 ? proxy.getPort() : ("https".equalsIgnoreCase(proxy.getScheme()) ? 443 : 80);
+        return new Proxy(Proxy.Type.HTTP, InetSocketAddress.createUnresolved(proxy.getHost(), port));
+    }
+
+    // Without a configured proxy, the JVM's choice per hop (http(s).proxyHost, socksProxyHost, nonProxyHosts,
+    // java.net.useSystemProxies), as HttpURLConnection made it before the exchange was driven by hand
+    private static Proxy selectProxy(URI uri) {
+        final var selector = ProxySelector.getDefault();
+        final var proxies = selector != null ? selector.select(uri) : null;
+        return proxies == null || proxies.isEmpty() ? Proxy.NO_PROXY : proxies.getFirst();
+    }
+
+    private void openTunnel(Socket socket, InputStream in, String host, int port) throws IOException {
+        final var out = socket.getOutputStream();
+        out.write(("CONNECT " + host + ":" + port + " HTTP/1.1\r\n"
+                + "Host: " + host + ":" + port + "\r\n"
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+
+        final var status = parseStatus(readLine(in));
+        while (!readLine(in).isEmpty()) {
+            // Skip proxy response headers
+        }
+        if (status.code() != 200) {
+            throw new IOException("Proxy CONNECT failed: HTTP " + status.code() + " " + status.reason());
+        }
+    }
+
+    private Response request(Socket socket, InputStream socketIn, URI uri, boolean absoluteForm, BodyExpectation expect, long mark, PhaseTimer timer) throws IOException {
+        final var path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        final var target = absoluteForm ? uri.toASCIIString() : path + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        final var hostHeader = uri.getPort() != -1 ? uri.getHost() + ":" + uri.getPort() : uri.getHost();
+
+        final var out = socket.getOutputStream();
+        out.write(("GET " + target + " HTTP/1.1\r\n"
+                + "Host: " + hostHeader + "\r\n"
+                + "User-Agent: Argus-Monitor/1.0 (Network Monitor)\r\n"
+                + "Accept: */*\r\n"
+                + "Connection: close\r\n"
+                + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+
+        final var in = new BufferedInputStream(socketIn);
+        in.mark(1);
+        if (in.read() < 0) {
+            throw new EOFException("Connection closed before response");
+        }
+        in.reset();
+        mark = timer.firstByte(mark);
+
+        var status = parseStatus(readLine(in));
+        var headers = readHeaders(in);
+        // Interim responses (100 Continue, 103 Early Hints) precede the real one; 101 is never asked for and counts as final
+        while (status.code() >= 100 && status.code() < 200 && status.code() != 101) {
+            status = parseStatus(readLine(in));
+            headers = readHeaders(in);
+        }
+
+        // Only the final 2xx body is inspected; redirect and error bodies are just drained
+        final var limit = expect != null && expect.maxBody() > 0 ? Math.max(MAX_BODY_BYTES, expect.maxBody() + 1) : MAX_BODY_BYTES;
+        final var body = new BoundedInputStream(bodyStream(in, status.code(), headers), limit);
+        String bodyFailure = null;
+        if (expect != null && status.code() >= 200 && status.code() < 300) {
+            bodyFailure = new BodyInspector(expect, compilePattern(expect.regex()), charset(headers.get("content-type"))).inspect(body);
+        } else {
+            drain(body);
+        }
+        timer.body(mark);
+
+        return new Response(status.code(), status.reason(), headers, bodyFailure);
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        final var headers = new HashMap<String, String>();
+        for (var line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            final var colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
             }
+        }
+        return headers;
+    }
 
-            return success;
+    private InputStream bodyStream(InputStream in, int status, Map<String, String> headers) {
+        if (status == 204 || status == 304 || (status >= 100 && status < 200)) {
+            return InputStream.nullInputStream();
+        }
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            return new ChunkedInputStream(in);
+        }
+        final var length = headers.get("content-length");
+        if (length != null) {
+            return new BoundedInputStream(in, Long.parseLong(length));
+        }
+        return in;
+    }
+
+    // The charset parameter of Content-Type; UTF-8 when absent or not supported here
+    static Charset charset(String contentType) {
+        if (contentType != null) {
+            for (var parameter : contentType.split(";")) {
+                final var pair = parameter.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+                    try {
+                        return Charset.forName(pair[1].trim().replace("\"", ""));
+                    } catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        final var buffer = new byte[BodyInspector.CHUNK_SIZE];
+        while (in.read(buffer) >= 0) {
+            // Body content is only timed, not inspected
+        }
+    }
+
+    private static StatusLine parseStatus(String line) throws IOException {
+        final var parts = line.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("Malformed status line: " + line);
+        }
+        try {
+            return new StatusLine(Integer.parseInt(parts[1]), parts.length > 2 ? parts[2] : "");
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed status line: " + line);
+        }
+    }
 
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+    private static String readLine(InputStream in) throws IOException {
+        final var line = new ByteArrayOutputStream(64);
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new EOFException("Connection closed while reading headers");
+            }
+            if (c != '\r') {
+                line.write(c);
+            }
+            if (line.size() > MAX_HEADER_LINE) {
+                throw new IOException("Header line too long");
             }
         }
+        return line.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static int remainingMillis(long deadline) throws SocketTimeoutException {
+        final var remaining = (deadline - System.nanoTime()) / 1_000_000;
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("Request did not complete in time");
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    private static boolean isHttp(URI uri) {
+        return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                && uri.getHost() != null && !uri.getHost().isEmpty();
+    }
+
+    private static Pattern compilePattern(String regex) {
+        return regex == null ? null : patterns.computeIfAbsent(regex, Pattern::compile);
     }
 
     @Override
     public String getDescription(TestConfig config) {
-        return String.format("URL: %s%s",
+        return String.format("URL: %s%s%s",
                 config.url(),
-                config.proxy() != null && !config.proxy().trim().isEmpty() ? " (via proxy)" : "");
+                config.proxy() != null && !config.proxy().trim().isEmpty() ? " (via proxy)" : "",
+                config.expect() != null ? " (content checked)" : "");
     }
 
     @Override
@@ -98,19 +331,192 @@ public class NetworkTestUrl implements NetworkTest {
             throw new IllegalArgumentException("URL is required for URL test");
         }
 
+        validateHttpUrl(config.url(), "URL");
+
+        // Validate proxy URL if provided
+        if (config.proxy() != null && !config.proxy().trim().isEmpty()) {
+            validateHttpUrl(config.proxy(), "proxy URL");
+        }
+
+        final var expect = config.expect();
+        if (expect != null) {
+            if (expect.regex() != null) {
+                try {
+                    compilePattern(expect.regex());
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("Invalid body regex: " + expect.regex());
+                }
+            }
+            if (expect.jsonPointer() != null) {
+                try {
+                    JsonPointer.compile(expect.jsonPointer());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid JSON pointer: " + expect.jsonPointer());
+                }
+            }
+        }
+    }
+
+    // Only http(s) is spoken here; a file: or jar: URL has no host, and resolving a null host silently probes loopback
+    private static void validateHttpUrl(String value, String what) {
+        final URI uri;
         try {
-            new URL(config.url());
+            uri = new URL(value).toURI();
         } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid URL format: " + config.url());
+            throw new IllegalArgumentException("Invalid " + what + " format: " + value);
         }
+        if (!isHttp(uri)) {
+            throw new IllegalArgumentException("Unsupported " + what + ": " + value + " (http or https with a host required)");
+        }
+    }
 
-        // Validate proxy URL if provided
-        if (config.proxy() != null && !config.proxy().trim().isEmpty()) {
-            try {
-                new URL(config.proxy());
-            } catch (Exception e) {
-                throw new IllegalArgumentException("Invalid proxy URL format: " + config.proxy());
+    private record StatusLine(int code, String reason) {}
+
+    private record Response(int status, String reason, Map<String, String> headers, String bodyFailure) {}
+
+    // Accumulates per-phase nanoseconds across redirect hops; only phases the last hop completed are reported
+    private static class PhaseTimer {
+        private final long[] nanos = new long[PhaseTimings.COUNT];
+        private int completed = 0;
+
+        void startHop() { completed = 0; }
+
+        long resolve(long mark) { return mark(0, mark); }
+        long connect(long mark) { return mark(1, mark); }
+        long tls(long mark) { return mark(2, mark); }
+        long firstByte(long mark) { return mark(3, mark); }
+        long body(long mark) { return mark(4, mark); }
+
+        private long mark(int phase, long mark) {
+            final var now = System.nanoTime();
+            nanos[phase] += now - mark;
+            completed |= 1 << phase;
+            return now;
+        }
+
+        // A phase cut short by a failure is -1 rather than a partial time that would drag the averages down
+        PhaseTimings toTimings() {
+            if (completed == 0) {
+                return null;
+            }
+            final var ms = new long[PhaseTimings.COUNT];
+            for (var phase = 0; phase < ms.length; phase++) {
+                ms[phase] = (completed & 1 << phase) != 0 ? nanos[phase] / 1_000_000 : -1;
+            }
+            return new PhaseTimings(ms[0], ms[1], ms[2], ms[3], ms[4]);
+        }
+    }
+
+    // Sets the socket timeout to what is left of the deadline before every read, so a trickling peer cannot extend it
+    private static class DeadlineInputStream extends InputStream {
+        private final Socket socket;
+        private final InputStream in;
+        private final long deadline;
+
+        DeadlineInputStream(Socket socket, long deadline) throws IOException {
+            this.socket = socket;
+            this.in = socket.getInputStream();
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int read() throws IOException {
+            socket.setSoTimeout(remainingMillis(deadline));
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            socket.setSoTimeout(remainingMillis(deadline));
+            return in.read(b, off, len);
+        }
+    }
+
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final var c = in.read();
+            if (c >= 0) {
+                remaining--;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final var n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    private static class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining = 0;
+        private boolean finished = false;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (finished) {
+                return false;
+            }
+            if (remaining == 0) {
+                var line = readLine(in);
+                if (line.isEmpty()) {
+                    line = readLine(in); // CRLF terminating the previous chunk
+                }
+                final var extension = line.indexOf(';');
+                remaining = Long.parseLong((extension >= 0 ? line.substring(0, extension) : line).trim(), 16);
+                if (remaining == 0) {
+                    finished = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            final var c = in.read();
+            if (c >= 0) {
+                remaining--;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            final var n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n < 0) {
+                throw new EOFException("Connection closed inside chunk");
             }
+            remaining -= n;
+            return n;
         }
     }
 }
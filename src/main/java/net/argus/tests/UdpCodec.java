@@ -0,0 +1,197 @@
+package net.argus.tests;
+
+import net.argus.UdpPayload;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Builds request datagrams and extracts the transaction ID a reply echoes back, per payload type
+final class UdpCodec {
+    static final long NO_ID = -1;
+    private static final String SNMP_DEFAULT_COMMUNITY = "public";
+    private static final byte[] SNMP_SYS_UPTIME = { 0x2b, 6, 1, 2, 1, 1, 3, 0 }; // 1.3.6.1.2.1.1.3.0
+
+    record Request(byte[] datagram, long id) {}
+
+    private UdpCodec() {}
+
+    static Request build(UdpPayload payload, String query) {
+        final var random = ThreadLocalRandom.current();
+        return switch (payload) {
+            case DNS -> {
+                final var id = random.nextInt(0x10000);
+                yield new Request(dnsQuery(id, query), id);
+            }
+            case NTP -> {
+                // The server copies our transmit timestamp into its originate field, so a random nonce correlates the reply
+                final var nonce = random.nextLong() & Long.MAX_VALUE;
+                final var datagram = new byte[48];
+                datagram[0] = 0x23; // LI=0, VN=4, Mode=3 (client)
+                ByteBuffer.wrap(datagram).putLong(40, nonce);
+                yield new Request(datagram, nonce);
+            }
+            case SNMP -> {
+                final var id = random.nextInt(1, Integer.MAX_VALUE);
+                yield new Request(snmpGet(id, query == null || query.isEmpty() ? SNMP_DEFAULT_COMMUNITY : query), id);
+            }
+            case HEX -> new Request(HexFormat.of().parseHex(query.replace(" ", "")), NO_ID); // raw bytes carry no ID to echo
+        };
+    }
+
+    // Returns NO_ID when the reply is not a well-formed response of the given type
+    static long replyId(UdpPayload payload, ByteBuffer reply) {
+        final var limit = reply.limit();
+        return switch (payload) {
+            case DNS -> limit >= 12 && (reply.get(2) & 0x80) != 0 ? reply.getShort(0) & 0xffff : NO_ID;
+            case NTP -> limit >= 48 && (reply.get(0) & 0x07) == 4 ? reply.getLong(24) & Long.MAX_VALUE : NO_ID;
+            case SNMP -> snmpRequestId(reply);
+            case HEX -> NO_ID;
+        };
+    }
+
+    static void validate(UdpPayload payload, String query) {
+        switch (payload) {
+            case DNS -> {
+                if (query == null || query.trim().isEmpty()) {
+                    throw new IllegalArgumentException("Query name is required for DNS payload");
+                }
+                for (var label : query.split("\\.")) {
+                    if (label.length() > 63) {
+                        throw new IllegalArgumentException("DNS label too long: " + label);
+                    }
+                }
+            }
+            case HEX -> {
+                if (query == null || query.trim().isEmpty()) {
+                    throw new IllegalArgumentException("Query bytes are required for HEX payload");
+                }
+                try {
+                    HexFormat.of().parseHex(query.replace(" ", ""));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid hex payload: " + query);
+                }
+            }
+            case NTP, SNMP -> {}
+        }
+    }
+
+    private static byte[] dnsQuery(int id, String name) {
+        final var out = new ByteArrayOutputStream(32 + name.length());
+        out.write(id >> 8);
+        out.write(id);
+        out.writeBytes(new byte[] { 0x01, 0x00, 0, 1, 0, 0, 0, 0, 0, 0 }); // RD set, one question
+        for (var label : name.split("\\.")) {
+            if (label.isEmpty()) {
+                continue;
+            }
+            final var bytes = label.getBytes(StandardCharsets.US_ASCII);
+            out.write(bytes.length);
+            out.writeBytes(bytes);
+        }
+        out.writeBytes(new byte[] { 0, 0, 1, 0, 1 }); // root, QTYPE=A, QCLASS=IN
+        return out.toByteArray();
+    }
+
+    private static byte[] snmpGet(int requestId, String community) {
+        final var varBind = tlv(0x30, concat(tlv(0x06, SNMP_SYS_UPTIME), new byte[] { 0x05, 0 }));
+        final var pdu = tlv(0xa0, concat(
+                  integer(requestId)
+                , integer(0) // error-status
+                , integer(0) // error-index
+                , tlv(0x30, varBind)));
+        return tlv(0x30, concat(integer(1), tlv(0x04, community.getBytes(StandardCharsets.US_ASCII)), pdu)); // version 1 = v2c
+    }
+
+    private static long snmpRequestId(ByteBuffer reply) {
+        final var in = reply.duplicate().position(0);
+        if (!enter(in, 0x30) || !skip(in, 0x02) || !skip(in, 0x04) || !enter(in, 0xa2)) {
+            return NO_ID;
+        }
+        if (!in.hasRemaining() || in.get() != 0x02) {
+            return NO_ID;
+        }
+        final var length = readLength(in);
+        if (length < 1 || length > 4 || in.remaining() < length) {
+            return NO_ID;
+        }
+        var value = 0L;
+        for (var i = 0; i < length; i++) {
+            value = (value << 8) | (in.get() & 0xff);
+        }
+        return value;
+    }
+
+    private static boolean enter(ByteBuffer in, int tag) {
+        return in.hasRemaining() && (in.get() & 0xff) == tag && readLength(in) >= 0;
+    }
+
+    private static boolean skip(ByteBuffer in, int tag) {
+        if (!in.hasRemaining() || (in.get() & 0xff) != tag) {
+            return false;
+        }
+        final var length = readLength(in);
+        if (length < 0 || in.remaining() < length) {
+            return false;
+        }
+        in.position(in.position() + length);
+        return true;
+    }
+
+    private static int readLength(ByteBuffer in) {
+        if (!in.hasRemaining()) {
+            return -1;
+        }
+        final var first = in.get() & 0xff;
+        if (first < 0x80) {
+            return first;
+        }
+        final var bytes = first & 0x7f;
+        if (bytes > 3 || in.remaining() < bytes) {
+            return -1;
+        }
+        var length = 0;
+        for (var i = 0; i < bytes; i++) {
+            length = (length << 8) | (in.get() & 0xff);
+        }
+        return length;
+    }
+
+    private static byte[] integer(int value) {
+        final var bytes = ByteBuffer.allocate(4).putInt(value).array();
+        var start = 0;
+        while (start < 3 && bytes[start] == 0 && bytes[start + 1] >= 0) {
+            start++;
+        }
+        final var content = new byte[4 - start];
+        System.arraycopy(bytes, start, content, 0, content.length);
+        return tlv(0x02, content);
+    }
+
+    private static byte[] tlv(int tag, byte[] content) {
+        final var out = new ByteArrayOutputStream(content.length + 4);
+        out.write(tag);
+        if (content.length < 0x80) {
+            out.write(content.length);
+        } else if (content.length < 0x100) {
+            out.write(0x81);
+            out.write(content.length);
+        } else {
+            out.write(0x82);
+            out.write(content.length >> 8);
+            out.write(content.length);
+        }
+        out.writeBytes(content);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        final var out = new ByteArrayOutputStream();
+        for (var part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,343 @@
+package net.argus.tests;
+
+import net.argus.UdpPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * All UDP probes go out through one unconnected DatagramChannel and are matched to replies by source address and
+ * transaction ID on a single selector thread, so thousands of services need neither a socket nor a thread each.
+ * An unconnected socket never sees ICMP errors, so a target whose probe times out gets a connected channel on the
+ * same selector until it answers again (or stops being probed); a port-unreachable on that channel fails its probes
+ * immediately. Those channels are capped, so an outage covering thousands of targets costs at most MAX_SUSPECTS
+ * descriptors: a full set makes room by dropping its least recently probed member once that has gone quiet for a
+ * sweep, and otherwise the new target is left to time out on the shared channel like before. Raw HEX payloads carry no ID to match on, so each gets a connected channel of its own whose local
+ * port is the correlation key.
+ */
+final class UdpProbeEngine {
+    private static final Logger logger = LoggerFactory.getLogger(UdpProbeEngine.class);
+    private static final int MAX_DATAGRAM = 65535;
+    private static final int MAX_ID_ATTEMPTS = 8;
+    private static final int RECEIVE_BUFFER = 4 * 1024 * 1024;
+    private static final long SWEEP_MS = 60_000;
+    private static final long SUSPECT_IDLE_MS = 10 * 60_000; // far above any probe timeout, so no reply is still owed
+    private static final int MAX_SUSPECTS = 256;
+    private static volatile UdpProbeEngine instance;
+
+    private final Selector selector;
+    private final DatagramChannel shared;
+    private final Map<Key, CompletableFuture<Integer>> pending = new ConcurrentHashMap<>();
+    private final Map<InetSocketAddress, Suspect> suspects = new ConcurrentHashMap<>();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private final int maxSuspects;
+
+    private record Key(InetSocketAddress source, UdpPayload payload, long id) {}
+
+    private static final class Suspect {
+        final DatagramChannel channel;
+        volatile long lastProbe = System.currentTimeMillis();
+
+        Suspect(DatagramChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    static UdpProbeEngine get() throws IOException {
+        var engine = instance;
+        if (engine == null) {
+            synchronized (UdpProbeEngine.class) {
+                engine = instance;
+                if (engine == null) {
+                    instance = engine = new UdpProbeEngine(MAX_SUSPECTS);
+                }
+            }
+        }
+        return engine;
+    }
+
+    UdpProbeEngine(int maxSuspects) throws IOException {
+        this.maxSuspects = maxSuspects;
+        selector = Selector.open();
+        shared = DatagramChannel.open();
+        shared.configureBlocking(false);
+        shared.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER); // replies to a whole interval's probes arrive in bursts
+        shared.bind(null);
+        shared.register(selector, SelectionKey.OP_READ);
+
+        final var thread = new Thread(this::selectLoop, "argus-udp");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("UDP probe engine listening on {}", shared.getLocalAddress());
+    }
+
+    // Completes with the reply size, or exceptionally on timeout, ICMP port-unreachable or send failure
+    CompletableFuture<Integer> probe(InetSocketAddress target, UdpPayload payload, String query, int timeoutMs) {
+        if (payload == UdpPayload.HEX) {
+            return probeExclusive(target, UdpCodec.build(payload, query).datagram(), timeoutMs);
+        }
+
+        final var future = new CompletableFuture<Integer>();
+        var request = UdpCodec.build(payload, query);
+        var key = new Key(target, payload, request.id());
+
+        // Transaction IDs are random, so a clash with one still in flight just draws another
+        for (var attempt = 1; pending.putIfAbsent(key, future) != null; attempt++) {
+            if (attempt == MAX_ID_ATTEMPTS) {
+                return CompletableFuture.failedFuture(new IOException("A " + payload + " probe to " + target + " is already in flight"));
+            }
+            request = UdpCodec.build(payload, query);
+            key = new Key(target, payload, request.id());
+        }
+        final var pendingKey = key;
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((size, error) -> {
+            pending.remove(pendingKey, future);
+            if (error instanceof TimeoutException && timeoutMs > 0) { // a spent deadline says nothing about the target
+                suspect(target);
+            }
+        });
+
+        try {
+            final var suspect = suspects.get(target);
+            if (suspect != null) {
+                suspect.lastProbe = System.currentTimeMillis();
+            }
+            final var sent = suspect != null
+                    ? suspect.channel.write(ByteBuffer.wrap(request.datagram()))
+                    : shared.send(ByteBuffer.wrap(request.datagram()), target);
+            if (sent == 0) {
+                future.completeExceptionally(new IOException("UDP send buffer full"));
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // The channel is connected, so only the target can answer it, and only this probe listens on its port
+    private CompletableFuture<Integer> probeExclusive(InetSocketAddress target, byte[] datagram, int timeoutMs) {
+        final var future = new CompletableFuture<Integer>();
+        final DatagramChannel channel;
+        try {
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(target);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((size, error) -> close(channel));
+
+        runOnSelector(() -> {
+            try {
+                channel.register(selector, SelectionKey.OP_READ, (Runnable) () -> receiveExclusive(channel, future));
+                if (channel.write(ByteBuffer.wrap(datagram)) == 0) {
+                    future.completeExceptionally(new IOException("UDP send buffer full"));
+                }
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    // Fire-and-forget datagram for targets without a request/response payload
+    void send(InetSocketAddress target, byte[] datagram) throws IOException {
+        if (shared.send(ByteBuffer.wrap(datagram), target) == 0 && datagram.length > 0) {
+            throw new IOException("UDP send buffer full");
+        }
+    }
+
+    // Only this adds suspects, and it holds the engine lock, so the set never grows past maxSuspects
+    private synchronized void suspect(InetSocketAddress target) {
+        if (suspects.containsKey(target) || (suspects.size() >= maxSuspects && !evictLeastRecentlyProbed())) {
+            return;
+        }
+        try {
+            final var channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(target);
+            final var suspect = new Suspect(channel);
+            suspects.put(target, suspect);
+            runOnSelector(() -> {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, (Runnable) () -> receiveConnected(suspect, target));
+                } catch (ClosedChannelException e) {
+                    suspects.remove(target, suspect);
+                }
+            });
+            logger.debug("UDP target {} stopped answering, probing it on a connected channel", target);
+        } catch (IOException e) {
+            logger.debug("Cannot open connected channel for {}: {}", target, e.getMessage());
+        }
+    }
+
+    // A member still probed within the last sweep keeps its place; the newcomer then gets timeout-only detection
+    private boolean evictLeastRecentlyProbed() {
+        Map.Entry<InetSocketAddress, Suspect> eldest = null;
+        for (var entry : suspects.entrySet()) {
+            if (eldest == null || entry.getValue().lastProbe < eldest.getValue().lastProbe) {
+                eldest = entry;
+            }
+        }
+        if (eldest == null || eldest.getValue().lastProbe > System.currentTimeMillis() - SWEEP_MS) {
+            return false;
+        }
+        logger.debug("Suspect set full, closing the connected channel of least recently probed {}", eldest.getKey());
+        recover(eldest.getKey(), eldest.getValue());
+        return true;
+    }
+
+    int suspectCount() {
+        return suspects.size();
+    }
+
+    private void recover(InetSocketAddress target, Suspect suspect) {
+        if (suspects.remove(target, suspect)) {
+            close(suspect.channel);
+        }
+    }
+
+    // A target nobody probes any more (monitor removed, or dead for good) gives its connected channel back
+    private void expireSuspects() {
+        final var cutoff = System.currentTimeMillis() - SUSPECT_IDLE_MS;
+        suspects.forEach((target, suspect) -> {
+            if (suspect.lastProbe < cutoff) {
+                logger.debug("UDP target {} no longer probed, closing its connected channel", target);
+                recover(target, suspect);
+            }
+        });
+    }
+
+    private void runOnSelector(Runnable task) {
+        selectorTasks.add(task);
+        selector.wakeup();
+    }
+
+    private void selectLoop() {
+        var nextSweep = System.currentTimeMillis() + SWEEP_MS;
+        while (true) {
+            try {
+                selector.select(SWEEP_MS);
+                for (Runnable task; (task = selectorTasks.poll()) != null; ) {
+                    task.run();
+                }
+
+                final var keys = selector.selectedKeys();
+                for (var key : keys) {
+                    if (key.channel() == shared) {
+                        receiveShared();
+                    } else if (key.isValid()) {
+                        ((Runnable) key.attachment()).run();
+                    }
+                }
+                keys.clear();
+
+                if (System.currentTimeMillis() >= nextSweep) {
+                    expireSuspects();
+                    nextSweep = System.currentTimeMillis() + SWEEP_MS;
+                }
+            } catch (Exception e) {
+                logger.error("UDP probe engine error: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void receiveShared() throws IOException {
+        for (SocketAddress source; (source = receive()) != null; ) {
+            if (source instanceof InetSocketAddress address) {
+                dispatch(address);
+            }
+        }
+    }
+
+    private SocketAddress receive() throws IOException {
+        receiveBuffer.clear();
+        final var source = shared.receive(receiveBuffer);
+        receiveBuffer.flip();
+        return source;
+    }
+
+    private void receiveConnected(Suspect suspect, InetSocketAddress target) {
+        try {
+            while (true) {
+                receiveBuffer.clear();
+                if (suspect.channel.read(receiveBuffer) <= 0) {
+                    return;
+                }
+                receiveBuffer.flip();
+                if (dispatch(target)) {
+                    recover(target, suspect);
+                    return;
+                }
+            }
+        } catch (PortUnreachableException e) {
+            failAll(target, new PortUnreachableException("Port unreachable (ICMP)"));
+        } catch (IOException e) {
+            failAll(target, e);
+            recover(target, suspect);
+        }
+    }
+
+    private void receiveExclusive(DatagramChannel channel, CompletableFuture<Integer> future) {
+        try {
+            receiveBuffer.clear();
+            if (channel.receive(receiveBuffer) != null) {
+                future.complete(receiveBuffer.position()); // an empty datagram is still an answer
+            }
+        } catch (PortUnreachableException e) {
+            future.completeExceptionally(new PortUnreachableException("Port unreachable (ICMP)"));
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private boolean dispatch(InetSocketAddress source) {
+        for (var payload : UdpPayload.values()) {
+            final var id = UdpCodec.replyId(payload, receiveBuffer);
+            if (id == UdpCodec.NO_ID) {
+                continue;
+            }
+            final var future = pending.remove(new Key(source, payload, id));
+            if (future != null) {
+                future.complete(receiveBuffer.limit());
+                return true;
+            }
+        }
+        logger.trace("Dropping unmatched {} byte datagram from {}", receiveBuffer.limit(), source);
+        return false;
+    }
+
+    private void failAll(InetSocketAddress target, IOException error) {
+        pending.forEach((key, future) -> {
+            if (key.source().equals(target) && pending.remove(key, future)) {
+                future.completeExceptionally(error);
+            }
+        });
+    }
+
+    private static void close(DatagramChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+}
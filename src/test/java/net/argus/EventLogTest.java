@@ -0,0 +1,89 @@
+package net.argus;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import net.logstash.logback.appender.AsyncDisruptorAppender;
+import net.logstash.logback.marker.ObjectAppendingMarker;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLogTest {
+
+    @Test
+    void transitionsWaitForRoomAndResultsAreDropped() throws Exception {
+        final var context = new LoggerContext();
+        context.putProperty("ARGUS_EVENTS_LEVEL", "DEBUG");
+        final var configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        configurator.doConfigure(EventLog.class.getResource("/logback.xml"));
+        try {
+            final var events = context.getLogger("argus.events");
+            assertEquals(Level.DEBUG, events.getLevel());
+
+            final var transitions = appender(events, "EVENT_TRANSITIONS");
+            final var results = appender(events, "EVENT_RESULTS");
+            assertEquals(-1, transitions.getAppendTimeout().getMilliseconds());
+            assertEquals(0, results.getAppendTimeout().getMilliseconds());
+
+            final var transition = new LoggingEvent(null, events, Level.INFO, "transition", null, null);
+            final var result = new LoggingEvent(null, events, Level.DEBUG, "result", null, null);
+            assertNotEquals(FilterReply.DENY, transitions.getFilterChainDecision(transition));
+            assertEquals(FilterReply.DENY, transitions.getFilterChainDecision(result));
+            assertNotEquals(FilterReply.DENY, results.getFilterChainDecision(result));
+            assertEquals(FilterReply.DENY, results.getFilterChainDecision(transition));
+        } finally {
+            context.stop();
+        }
+    }
+
+    @Test
+    void bothEventsCarryTheCheckTime() {
+        final var events = (Logger) LoggerFactory.getLogger("argus.events");
+        final var level = events.getLevel();
+        final var captured = new ListAppender<ILoggingEvent>();
+        captured.start();
+        events.addAppender(captured);
+        events.setLevel(Level.DEBUG);
+        try {
+            final var state = MonitorStateTest.state(null);
+            final var at = LocalDateTime.of(2026, 3, 29, 2, 30, 15);
+            final var result = new TestResult(false, 12, at, "refused");
+            final var snapshot = new MonitorSnapshot(MonitorStatus.WARNING, MonitorStatus.OK, 2, 0, result, 50.0, 12, null, 4);
+            EventLog.record(state, result, snapshot);
+
+            assertEquals(2, captured.list.size());
+            for (var event : captured.list) {
+                assertEquals("at=" + at, field(event, "at"), event.getMessage());
+            }
+        } finally {
+            events.detachAppender(captured);
+            events.setLevel(level);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AsyncDisruptorAppender<ILoggingEvent, ?> appender(Logger logger, String name) {
+        return (AsyncDisruptorAppender<ILoggingEvent, ?>) logger.getAppender(name);
+    }
+
+    // The argument as it renders in a plain message, name=value
+    private static String field(ILoggingEvent event, String name) {
+        return Arrays.stream(event.getArgumentArray())
+                .map(ObjectAppendingMarker.class::cast)
+                .filter(marker -> marker.getFieldName().equals(name))
+                .findFirst()
+                .map(ObjectAppendingMarker::toString)
+                .orElse(null);
+    }
+}
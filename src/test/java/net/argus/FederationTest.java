@@ -0,0 +1,198 @@
+package net.argus;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two Argus instances on loopback, the downstream one federating the upstream one
+class FederationTest {
+    private final List<Runnable> cleanup = new ArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void stop() {
+        cleanup.forEach(Runnable::run);
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void downstreamShowsUpstreamMonitorsAndTheirLastError() throws Exception {
+        final var state = MonitorStateTest.state(null);
+        state.addResult(new TestResult(false, 15, LocalDateTime.now(), "refused <port 9>"));
+        final var upstream = server("upstream", Map.of("group:target", state), new Federation(List.of()));
+
+        final var federation = new Federation(List.of(new Upstream("east", upstream, 2000, 1)));
+        final var downstream = server("downstream", Map.of(), federation);
+        federation.start(scheduler);
+
+        final var site = awaitSite(federation, s -> s.error() == null);
+        final var monitor = site.groups().getFirst().monitors().getFirst();
+        assertEquals("upstream", site.name());
+        assertEquals("target", monitor.name());
+        assertEquals("refused <port 9>", monitor.error());
+
+        final var page = get(downstream + "/").body();
+        assertTrue(page.contains("refused &lt;port 9&gt;"), page);
+        assertFalse(page.contains("refused <port 9>"), page);
+    }
+
+    @Test
+    void phasesAndBurstStatsCrossTheFederation() throws Exception {
+        final var state = MonitorStateTest.state(null);
+        state.addResult(new TestResult(true, 15, LocalDateTime.now(), null, new PhaseTimings(1, 2, -1, 7, 3), new BurstStats(10, 7, 4.0, 1.5)));
+        final var upstream = server("upstream", Map.of("group:target", state), new Federation(List.of()));
+
+        final var federation = new Federation(List.of(new Upstream("east", upstream, 2000, 1)));
+        final var downstream = server("downstream", Map.of(), federation);
+        federation.start(scheduler);
+
+        final var monitor = awaitSite(federation, s -> s.error() == null).groups().getFirst().monitors().getFirst();
+        assertEquals(new PhaseTimings(1, 2, -1, 7, 3), monitor.phases());
+        assertEquals(new BurstStats(10, 7, 4.0, 1.5), monitor.burst());
+
+        final var page = get(downstream + "/").body();
+        assertTrue(page.contains("DNS 1 / TCP 2 / TTFB 7 / Body 3 ms"), page);
+        assertTrue(page.contains("Loss 30% (7/10) / Jitter 1.5 ms"), page);
+    }
+
+    @Test
+    void hungAndDeadSitesShowAsStaleWithoutHoldingUpThePage() throws Exception {
+        // Accepts connections and reads nothing, so every poll runs into its timeout
+        final var hung = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        final var held = new CopyOnWriteArrayList<Socket>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                while (true) {
+                    held.add(hung.accept());
+                }
+            } catch (IOException closed) {
+                // Test finished
+            }
+        });
+        cleanup.add(() -> {
+            try {
+                hung.close();
+                for (var socket : held) {
+                    socket.close();
+                }
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        });
+        final int refused;
+        try (var closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            refused = closed.getLocalPort();
+        }
+
+        final var federation = new Federation(List.of(
+                  new Upstream("hung", "http://127.0.0.1:" + hung.getLocalPort(), 500, 1)
+                , new Upstream("dead", "http://127.0.0.1:" + refused, 500, 1)));
+        final var downstream = server("downstream", Map.of(), federation);
+        federation.start(scheduler);
+
+        final var deadline = System.currentTimeMillis() + 10_000;
+        while (federation.sites().stream().anyMatch(site -> "Not polled yet".equals(site.error())) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        final var now = System.currentTimeMillis();
+        final var hungSite = federation.sites().get(0);
+        final var deadSite = federation.sites().get(1);
+        assertTrue(hungSite.isStale(now) && deadSite.isStale(now));
+        assertEquals("No answer within 500ms", hungSite.error());
+        assertEquals("Cannot connect to 127.0.0.1:" + refused, deadSite.error());
+
+        // Rendered from the cache while the next poll of the hung site is still waiting
+        final var started = System.nanoTime();
+        final var page = get(downstream + "/");
+        final var elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        assertEquals(200, page.statusCode());
+        assertTrue(elapsedMs < 250, "page took " + elapsedMs + " ms");
+        assertTrue(page.body().contains("STALE, never reached: No answer within 500ms"), page.body());
+        assertTrue(page.body().contains("STALE, never reached: Cannot connect to 127.0.0.1:" + refused), page.body());
+    }
+
+    @Test
+    void passingMonitorHasNoError() throws Exception {
+        final var state = MonitorStateTest.state(null);
+        state.addResult(new TestResult(true, 15, LocalDateTime.now(), null));
+        final var upstream = server("upstream", Map.of("group:target", state), new Federation(List.of()));
+
+        final var federation = new Federation(List.of(new Upstream("east", upstream, 2000, 1)));
+        federation.start(scheduler);
+
+        assertNull(awaitSite(federation, s -> s.error() == null).groups().getFirst().monitors().getFirst().error());
+    }
+
+    @Test
+    void oversizedStatusIsRejected() throws Exception {
+        final var flood = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        flood.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            final var chunk = new byte[64 * 1024];
+            try (var out = exchange.getResponseBody()) {
+                for (var i = 0; i < 512; i++) { // 32 MiB, twice the cap
+                    out.write(chunk);
+                }
+            } catch (IOException e) {
+                // the client hung up, which is the point
+            }
+        });
+        flood.start();
+        cleanup.add(() -> flood.stop(0));
+
+        final var federation = new Federation(List.of(new Upstream("flood", "http://127.0.0.1:" + flood.getAddress().getPort(), 5000, 60)));
+        cleanup.add(federation::stop);
+        federation.start(scheduler);
+
+        final var site = awaitSite(federation, s -> !"Not polled yet".equals(s.error()));
+        assertTrue(site.error().contains("larger than"), site.error());
+        assertTrue(site.groups().isEmpty());
+    }
+
+    private String server(String name, Map<String, MonitorState> monitors, Federation federation) throws Exception {
+        final int port;
+        try (var probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        final var server = new WebServer(new MonitorConfig(name, "127.0.0.1:" + port, null, List.of(), List.of()), monitors, federation);
+        cleanup.add(server::stop);
+        cleanup.add(federation::stop);
+        return "http://127.0.0.1:" + port;
+    }
+
+    private static Federation.RemoteSite awaitSite(Federation federation, Predicate<Federation.RemoteSite> ready) throws InterruptedException {
+        final var deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            final var site = federation.sites().getFirst();
+            if (ready.test(site)) {
+                return site;
+            }
+            Thread.sleep(50);
+        }
+        return fail("Site not polled in time: " + federation.sites().getFirst());
+    }
+
+    private static HttpResponse<String> get(String url) throws Exception {
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
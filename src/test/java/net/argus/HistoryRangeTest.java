@@ -0,0 +1,49 @@
+package net.argus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryRangeTest {
+    private final HistoryRange range = new HistoryRange(
+              new long[] {1_000, 1_400, 1_999, 2_000, 4_500, 4_501}
+            , new int[] {10, 30, 20, 40, 50, 60}
+            , new boolean[] {true, false, true, true, true, false});
+
+    @Test
+    void emptyBucketsAreLeftOutAndEdgesBelongToTheLaterBucket() {
+        final var buckets = range.downsample(1_000, 1_000, 50);
+
+        assertEquals(3, buckets.size());
+        assertBucket(buckets.get(0), 1_000, 3, 10, 30);
+        assertBucket(buckets.get(1), 2_000, 1, 40, 40);
+        assertBucket(buckets.get(2), 4_000, 2, 50, 60);
+        assertEquals(2.0 / 3, buckets.get(0).successRatio(), 1e-9);
+        assertEquals(20, buckets.get(0).percentile());
+    }
+
+    @Test
+    void bucketsFollowTheGridOfTheOrigin() {
+        final var buckets = range.downsample(HistoryRange.alignDown(1_000, 250, 1_000), 1_000, 50);
+
+        assertEquals(250, HistoryRange.alignDown(1_000, 250, 1_000));
+        assertEquals(-750, HistoryRange.alignDown(-1, 250, 1_000));
+        assertEquals(3, buckets.size());
+        assertBucket(buckets.get(0), 250, 1, 10, 10);
+        assertBucket(buckets.get(1), 1_250, 3, 20, 40);
+        assertBucket(buckets.get(2), 4_250, 2, 50, 60);
+    }
+
+    @Test
+    void overflowingBucketEndThrowsInsteadOfLooping() {
+        assertThrows(ArithmeticException.class, () -> range.downsample(1, Long.MAX_VALUE, 50));
+        assertThrows(ArithmeticException.class, () -> HistoryRange.alignDown(Long.MAX_VALUE, -2, 10));
+    }
+
+    private static void assertBucket(HistoryRange.Bucket bucket, long start, int count, int min, int max) {
+        assertEquals(start, bucket.start());
+        assertEquals(count, bucket.count());
+        assertEquals(min, bucket.min());
+        assertEquals(max, bucket.max());
+    }
+}
@@ -0,0 +1,44 @@
+package net.argus;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.LocalDateTime;
+
+/*
+ * Heap footprint and GC time of a full history, heap ring against off-heap columns:
+ *   java --enable-preview -cp target/classes:target/test-classes:<deps> net.argus.HistoryStoreBenchmark heap|offheap [monitors] [depth]
+ * Run each backend in its own JVM so one does not inherit the other's garbage.
+ */
+class HistoryStoreBenchmark {
+    static void main(String[] args) {
+        final var offHeap = args.length > 0 && args[0].equals("offheap");
+        final var monitors = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        final var depth = args.length > 2 ? Integer.parseInt(args[2]) : 3600;
+
+        final var stores = new HistoryStore[monitors];
+        for (var m = 0; m < stores.length; m++) {
+            stores[m] = offHeap ? new OffHeapHistoryStore(depth, false) : new HeapHistoryStore(depth);
+        }
+        final var start = LocalDateTime.now();
+        final var began = System.nanoTime();
+        for (var i = 0; i < depth; i++) {
+            final var timestamp = start.plusSeconds(i);
+            for (var store : stores) {
+                store.add(new TestResult(i % 7 != 0, i % 300, timestamp, null));
+            }
+        }
+        final var fillMs = (System.nanoTime() - began) / 1_000_000;
+
+        System.gc();
+        final var runtime = Runtime.getRuntime();
+        final var heapMB = (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024;
+        var gcMs = 0L;
+        for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMs += Math.max(gc.getCollectionTime(), 0);
+        }
+        Reference.reachabilityFence(stores);
+
+        System.out.printf("%s: %d monitors x %d results, filled in %d ms, heap used %d MB, off-heap %d MB, GC %d ms%n",
+                offHeap ? "offheap" : "heap", monitors, depth, fillMs, heapMB, OffHeapHistoryStore.reservedBytes() / 1024 / 1024, gcMs);
+    }
+}
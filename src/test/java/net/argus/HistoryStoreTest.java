@@ -0,0 +1,104 @@
+package net.argus;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryStoreTest {
+
+    @Test
+    void matchesHeapStoreOnceTheRingWraps() {
+        final var random = new Random(7);
+        final var heap = new HeapHistoryStore(1000);
+        final var offHeap = new OffHeapHistoryStore(1000, true);
+        final var start = LocalDateTime.now().withNano(0);
+        final var before = System.currentTimeMillis();
+        for (var i = 0; i < 2537; i++) {
+            final var phases = random.nextBoolean() ? new PhaseTimings(1, 2, random.nextBoolean() ? 3 : -1, random.nextInt(100), 5) : null;
+            final var result = new TestResult(random.nextInt(10) < 8, random.nextInt(500), start.plusSeconds(i), null, phases, null);
+            heap.add(result);
+            offHeap.add(result);
+        }
+
+        assertEquals(heap.size(), offHeap.size());
+        assertEquals(heap.uptimePercentage(), offHeap.uptimePercentage(), 1e-9);
+        assertEquals(heap.durationPercentile(95), offHeap.durationPercentile(95));
+        assertEquals(heap.averagePhaseTimings(), offHeap.averagePhaseTimings());
+
+        final var heapRange = heap.range(0, Long.MAX_VALUE);
+        final var offHeapRange = offHeap.range(0, Long.MAX_VALUE);
+        // Each store stamps its own append time, so the two may straddle a millisecond; both stay ascending and in range
+        final var after = System.currentTimeMillis();
+        for (var range : new HistoryRange[] {heapRange, offHeapRange}) {
+            assertEquals(heap.size(), range.size());
+            assertTrue(range.timestamps()[0] >= before && range.timestamps()[range.size() - 1] <= after);
+            for (var i = 1; i < range.size(); i++) {
+                assertTrue(range.timestamps()[i - 1] <= range.timestamps()[i]);
+            }
+        }
+        assertArrayEquals(heapRange.durations(), offHeapRange.durations());
+        assertArrayEquals(heapRange.success(), offHeapRange.success());
+    }
+
+    @Test
+    void cachedPercentileFollowsWrites() {
+        for (var store : new HistoryStore[] {new HeapHistoryStore(10), new OffHeapHistoryStore(10, false)}) {
+            for (var i = 1; i <= 10; i++) {
+                store.add(new TestResult(true, i, LocalDateTime.now(), null));
+            }
+            assertEquals(10, store.durationPercentile(95));
+            assertEquals(5, store.durationPercentile(50));
+            assertEquals(5, store.durationPercentile(50));
+
+            store.add(new TestResult(false, 100, LocalDateTime.now(), null)); // evicts the 1
+            assertEquals(100, store.durationPercentile(95));
+            assertEquals(6, store.durationPercentile(50));
+            assertEquals(90.0, store.uptimePercentage(), 1e-9);
+        }
+    }
+
+    @Test
+    void rangeFindsResultsWhoseOwnTimestampsGoBackwards() {
+        for (var store : new HistoryStore[] {new HeapHistoryStore(100), new OffHeapHistoryStore(100, false)}) {
+            // The DST fall-back repeats an hour of local time; a clock step does the same to completion times
+            final var now = LocalDateTime.now();
+            final var before = System.currentTimeMillis();
+            for (var i = 0; i < 60; i++) {
+                store.add(new TestResult(true, i, now.minusMinutes(i % 2 == 0 ? 0 : 61), null));
+            }
+            final var after = System.currentTimeMillis();
+
+            final var all = store.range(before, after + 1);
+            assertEquals(60, all.size());
+            for (var i = 1; i < all.size(); i++) {
+                assertTrue(all.timestamps()[i] >= all.timestamps()[i - 1]);
+            }
+            assertEquals(0, store.range(0, before).size());
+        }
+    }
+
+    @Test
+    void reservedBytesAreReleasedWithTheStore() throws InterruptedException {
+        settle(); // stores dropped by earlier tests would otherwise leave the count mid-test
+        final var before = OffHeapHistoryStore.reservedBytes();
+        var store = new OffHeapHistoryStore(100_000, true);
+        assertTrue(OffHeapHistoryStore.reservedBytes() >= before + 100_000L * 33);
+
+        store = null;
+        for (var attempt = 0; attempt < 50 && OffHeapHistoryStore.reservedBytes() > before; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertTrue(OffHeapHistoryStore.reservedBytes() <= before);
+    }
+
+    private static void settle() throws InterruptedException {
+        for (var attempt = 0; attempt < 5; attempt++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+    }
+}
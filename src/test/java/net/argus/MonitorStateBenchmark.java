@@ -0,0 +1,71 @@
+package net.argus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Result writes against dashboard reads over 10k monitors with full histories:
+ *   java --enable-preview -cp target/classes:target/test-classes:<deps> net.argus.MonitorStateBenchmark [heap|offheap] [readers] [seconds]
+ * Two writer threads append results round-robin while the readers sweep every monitor the way the status page does.
+ */
+class MonitorStateBenchmark {
+    private static final int MONITORS = 10_000;
+    private static final int WRITERS = 2;
+
+    static void main(String[] args) throws Exception {
+        final var backend = args.length > 0 ? args[0] : "heap";
+        final var readers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        final var seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        final var group = new Group(0, "bench", new ArrayList<>());
+        final var states = new MonitorState[MONITORS];
+        final var now = LocalDateTime.now();
+        for (var i = 0; i < states.length; i++) {
+            final var test = new TestConfig("Connect", Protocol.TCP, 80, null, null, "127.0.0.1", null, null, null, null);
+            final var destination = new Destination(i, "m" + i, 1000, 3, 5, 2, 20, 1000, test);
+            states[i] = new MonitorState(destination, group, HistoryStore.create(backend, destination));
+            for (var k = 0; k < 1000; k++) {
+                states[i].addResult(new TestResult(k % 7 != 0, k % 300, now, null));
+            }
+        }
+
+        final var writes = new LongAdder();
+        final var reads = new LongAdder();
+        final var stop = new AtomicBoolean();
+        final var pool = Executors.newFixedThreadPool(WRITERS + readers);
+        for (var w = 0; w < WRITERS; w++) {
+            final var offset = w;
+            pool.submit(() -> {
+                final var result = new TestResult(true, 10, now, null);
+                for (var i = offset; !stop.get(); i += WRITERS) {
+                    states[i % states.length].addResult(result);
+                    writes.increment();
+                }
+            });
+        }
+        for (var r = 0; r < readers; r++) {
+            pool.submit(() -> {
+                var sink = 0L;
+                while (!stop.get()) {
+                    for (var state : states) {
+                        final var snapshot = state.snapshot();
+                        sink += snapshot.status().ordinal() + (long) snapshot.uptimePercentage() + snapshot.p95();
+                        reads.increment();
+                    }
+                }
+                return sink;
+            });
+        }
+
+        Thread.sleep(1000); // warm-up
+        writes.reset();
+        reads.reset();
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        pool.shutdown();
+        System.out.printf("%s, %d readers: writes/s=%,d reads/s=%,d%n", backend, readers, writes.sum() / seconds, reads.sum() / seconds);
+    }
+}
@@ -0,0 +1,100 @@
+package net.argus;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitorStateTest {
+    // warning after 2, failure after 4, reset after 3; a burst of 10 warns at 20% loss and fails at 60%
+    private static final Burst BURST = new Burst(10, 10, 20, 60);
+
+    private final MonitorState state = state(BURST);
+
+    @Test
+    void singleLossyBurstDoesNotWarn() {
+        assertEquals(MonitorStatus.OK, add(lossy()));
+        assertEquals(MonitorStatus.OK, add(clean()));
+        assertEquals(MonitorStatus.OK, add(lossy()));
+    }
+
+    @Test
+    void lossyBurstsWarnAfterTheWarningStreakButNeverFail() {
+        assertEquals(MonitorStatus.OK, add(lossy()));
+        assertEquals(MonitorStatus.WARNING, add(lossy()));
+        for (var i = 0; i < 10; i++) {
+            assertEquals(MonitorStatus.WARNING, add(lossy()));
+        }
+        // The lossy streak stops at the warning level, so one failure does not jump to FAILURE
+        assertEquals(MonitorStatus.WARNING, add(failed()));
+    }
+
+    @Test
+    void failedMonitorRecoversToWarningWhileStillLossy() {
+        for (var i = 0; i < 4; i++) {
+            add(failed());
+        }
+        assertEquals(MonitorStatus.FAILURE, state.snapshot().status());
+
+        assertEquals(MonitorStatus.FAILURE, add(lossy()));
+        assertEquals(MonitorStatus.FAILURE, add(lossy()));
+        assertEquals(MonitorStatus.WARNING, add(lossy()));
+        assertEquals(MonitorStatus.WARNING, add(lossy()));
+
+        add(clean());
+        add(clean());
+        assertEquals(MonitorStatus.OK, add(clean()));
+    }
+
+    @Test
+    void p95IsPublishedWithTheSnapshotAndRefreshedAtMostOncePerSecond() throws Exception {
+        final var state = state(null);
+        assertEquals(-1, state.snapshot().p95());
+
+        assertEquals(40, state.addResult(new TestResult(true, 40, LocalDateTime.now(), null)).p95());
+        for (var i = 0; i < 20; i++) {
+            assertEquals(40, state.addResult(new TestResult(true, 500, LocalDateTime.now(), null)).p95());
+        }
+
+        Thread.sleep(1100);
+        assertEquals(500, state.addResult(new TestResult(true, 500, LocalDateTime.now(), null)).p95());
+        assertEquals(500, state.getP95Duration());
+    }
+
+    @Test
+    void burstOverUdpWithoutPayloadIsRejected() {
+        final var config = new TestConfig("Connect", Protocol.UDP, 53, null, null, "127.0.0.1", null, null, null, BURST);
+        assertThrows(IllegalArgumentException.class, () -> TestFactory.validateAndDescribe(config));
+
+        final var withPayload = new TestConfig("Connect", Protocol.UDP, 53, null, null, "127.0.0.1", UdpPayload.HEX, "00", null, BURST);
+        assertDoesNotThrow(() -> TestFactory.validateAndDescribe(withPayload));
+    }
+
+    private MonitorStatus add(TestResult result) {
+        return state.addResult(result).status();
+    }
+
+    private static TestResult clean() {
+        return burst(10);
+    }
+
+    private static TestResult lossy() {
+        return burst(7); // 30% loss: above warning, below failure
+    }
+
+    private static TestResult failed() {
+        return new TestResult(false, 0, LocalDateTime.now(), "Loss 100%", null, new BurstStats(10, 0, 0, 0));
+    }
+
+    private static TestResult burst(int received) {
+        return new TestResult(true, 5, LocalDateTime.now(), null, null, new BurstStats(10, received, 5, 1));
+    }
+
+    static MonitorState state(Burst burst) {
+        final var test = new TestConfig("Connect", Protocol.TCP, 80, null, null, "127.0.0.1", null, null, null, burst);
+        final var destination = new Destination(1, "target", 1000, 2, 4, 3, 10, 100, test);
+        return new MonitorState(destination, new Group(1, "group", List.of(destination)), new HeapHistoryStore(100));
+    }
+}
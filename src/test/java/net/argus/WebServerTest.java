@@ -0,0 +1,110 @@
+package net.argus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final MonitorState state = MonitorStateTest.state(null);
+    private WebServer server;
+    private String base;
+
+    @BeforeEach
+    void start() throws Exception {
+        final int port;
+        try (var probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        base = "http://127.0.0.1:" + port;
+        final var config = new MonitorConfig("test", "127.0.0.1:" + port, null, List.of(), List.of());
+        server = new WebServer(config, Map.of("group:target", state), new Federation(List.of()));
+        for (var i = 0; i < 10; i++) {
+            state.addResult(new TestResult(i != 3, 10 + i, LocalDateTime.now(), i == 3 ? "refused" : null));
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void percentileOutsideRangeOrNotANumberIsRejected() throws Exception {
+        for (var percentile : new String[] {"NaN", "0", "-5", "100.5", "Infinity"}) {
+            assertEquals(400, get("/api/history?monitor=group:target&percentile=" + percentile).statusCode(), percentile);
+        }
+    }
+
+    @Test
+    void historyUsesTheRequestedPercentile() throws Exception {
+        final var response = get("/api/history?monitor=group:target&step=3600000&percentile=99.9");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"p99.9\":19"), response.body());
+        assertTrue(response.body().contains("\"count\":10"), response.body());
+    }
+
+    @Test
+    void fromBoundIsInclusiveAndToBoundExclusive() throws Exception {
+        final var timestamps = state.getHistory(Long.MIN_VALUE, Long.MAX_VALUE).timestamps();
+        final var pivot = timestamps[3];
+        final var before = Arrays.stream(timestamps).filter(t -> t < pivot).count();
+
+        assertEquals(10 - before, count(get("/api/history?monitor=group:target&step=1000&from=" + pivot)));
+        assertEquals(before, count(get("/api/history?monitor=group:target&step=1000&from=0&to=" + pivot)));
+    }
+
+    @Test
+    void bucketsAlignToFromButStartAtTheFirstResult() throws Exception {
+        final var first = state.getHistory(Long.MIN_VALUE, Long.MAX_VALUE).timestamps()[0];
+        final var from = first - 2_500;
+        final var response = get("/api/history?monitor=group:target&step=1000&from=" + from);
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"from\":" + (from + 2_000)), response.body());
+        assertTrue(response.body().contains("\"t\":" + (from + 2_000)), response.body());
+    }
+
+    @Test
+    void distantFromWithFineStepIsNotTooManyBuckets() throws Exception {
+        final var response = get("/api/history?monitor=group:target&from=0&step=60000");
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"count\":10"), response.body());
+    }
+
+    @Test
+    void overflowingBucketIsRejected() throws Exception {
+        final var response = get("/api/history?monitor=group:target&from=1&step=" + Long.MAX_VALUE);
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().contains("overflow"), response.body());
+    }
+
+    private static long count(HttpResponse<String> response) throws Exception {
+        var count = 0L;
+        for (var bucket : new ObjectMapper().readTree(response.body()).get("buckets")) {
+            count += bucket.get("count").asLong();
+        }
+        return count;
+    }
+
+    HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create(base + path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,59 @@
+package net.argus.sim;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+// How a simulated target answers: response latency, random drops, total silence, and an up/down flapping cycle.
+// weight is the share of farm ports given this behavior relative to the other profiles.
+public record Behavior(String name, int weight, Latency latency, double dropRate, boolean blackhole, int upSeconds, int downSeconds) {
+    public enum Distribution {
+        FIXED, UNIFORM, EXPONENTIAL, NORMAL
+    }
+
+    // FIXED: a ms; UNIFORM: a..b ms; EXPONENTIAL: mean a ms; NORMAL: mean a ms, deviation b ms
+    public record Latency(Distribution distribution, double a, double b) {
+        long sampleMs(RandomGenerator random) {
+            final var value = switch (distribution) {
+                case FIXED -> a;
+                case UNIFORM -> a + random.nextDouble() * (b - a);
+                case EXPONENTIAL -> random.nextExponential() * a;
+                case NORMAL -> random.nextGaussian(a, b);
+            };
+            return Math.max(0, Math.round(value));
+        }
+    }
+
+    public static final List<Behavior> PROFILES = List.of(
+          new Behavior("healthy", 3, new Latency(Distribution.UNIFORM, 1, 5), 0.0, false, 0, 0)
+        , new Behavior("slow", 1, new Latency(Distribution.EXPONENTIAL, 80, 0), 0.0, false, 0, 0)
+        , new Behavior("jittery", 1, new Latency(Distribution.NORMAL, 30, 15), 0.0, false, 0, 0)
+        , new Behavior("lossy", 1, new Latency(Distribution.UNIFORM, 1, 5), 0.2, false, 0, 0)
+        , new Behavior("flapping", 1, new Latency(Distribution.UNIFORM, 1, 5), 0.0, false, 90, 30)
+        , new Behavior("blackhole", 1, new Latency(Distribution.FIXED, 0, 0), 0.0, true, 0, 0)
+    );
+    private static final int TOTAL_WEIGHT = PROFILES.stream().mapToInt(Behavior::weight).sum();
+
+    // Deterministic weighted round-robin over the profiles, so every run lays out the farm the same way
+    public static Behavior forSlot(int slot) {
+        var remaining = slot % TOTAL_WEIGHT;
+        for (var profile : PROFILES) {
+            remaining -= profile.weight();
+            if (remaining < 0) {
+                return profile;
+            }
+        }
+        throw new IllegalStateException("Unreachable: slot beyond total weight");
+    }
+
+    boolean isDown(long elapsedMs) {
+        if (downSeconds <= 0) {
+            return false;
+        }
+        final var cycle = (upSeconds + downSeconds) * 1000L;
+        return elapsedMs % cycle >= upSeconds * 1000L;
+    }
+
+    boolean drops(RandomGenerator random) {
+        return dropRate > 0 && random.nextDouble() < dropRate;
+    }
+}
@@ -0,0 +1,112 @@
+package net.argus.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Writes a config.json with the requested number of destinations spread across the farm's targets
+public class ConfigGenerator {
+    private static final int GROUP_SIZE = 1000;
+    private static final Set<String> PROTOCOLS = Set.of("TCP", "UDP", "HTTP");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public void write(Path path, String listen, int monitors, Map<String, Integer> mix, int interval, int timeout, List<SimulationFarm.Target> targets, String host) throws IOException {
+        validate(mix);
+        final var root = mapper.createObjectNode();
+        root.put("name", "argus-simulation");
+        root.put("listen", listen);
+        final var groups = root.putArray("monitors");
+
+        final var byProtocol = new LinkedHashMap<String, List<SimulationFarm.Target>>();
+        for (var protocol : mix.keySet()) {
+            byProtocol.put(protocol, targets.stream().filter(t -> t.protocol().equals(protocol)).toList());
+            if (mix.get(protocol) > 0 && byProtocol.get(protocol).isEmpty()) {
+                throw new IllegalArgumentException("No farm targets for protocol in mix: " + protocol);
+            }
+        }
+        final var weights = mix.values().stream().mapToInt(Integer::intValue).sum();
+
+        ObjectNode group = null;
+        for (var i = 0; i < monitors; i++) {
+            if (i % GROUP_SIZE == 0) {
+                group = groups.addObject();
+                group.put("group", "sim-" + (i / GROUP_SIZE));
+                group.put("sort", i / GROUP_SIZE);
+                group.putArray("destinations");
+            }
+
+            final var protocol = pick(mix, weights, i);
+            final var candidates = byProtocol.get(protocol);
+            final var target = candidates.get((i / mix.size()) % candidates.size());
+
+            final var dest = group.withArray("destinations").addObject();
+            dest.put("sort", i);
+            dest.put("name", protocol.toLowerCase() + "-" + target.behavior().name() + "-" + i);
+            final var test = dest.putObject("test");
+            switch (protocol) {
+                case "TCP" -> {
+                    test.put("method", "Connect");
+                    test.put("protocol", "TCP");
+                    test.put("host", host);
+                    test.put("port", target.port());
+                }
+                case "UDP" -> {
+                    test.put("method", "Connect");
+                    test.put("protocol", "UDP");
+                    test.put("host", host);
+                    test.put("port", target.port());
+                    test.put("payload", "DNS");
+                    test.put("query", "sim.argus.local");
+                }
+                case "HTTP" -> {
+                    test.put("method", "URL");
+                    test.put("host", host);
+                    test.put("url", "http://" + host + ":" + target.port() + "/health/" + i);
+                }
+                default -> throw new IllegalArgumentException("Unknown protocol in mix: " + protocol);
+            }
+            dest.put("timeout", timeout);
+            dest.put("warning", 2);
+            dest.put("failure", 4);
+            dest.put("reset", 2);
+            dest.put("interval", interval);
+            dest.put("history", 360);
+        }
+
+        mapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), root);
+    }
+
+    // Checked before the farm starts, so a typo such as SCTP:10 is reported as such rather than as a division by zero
+    public static void validate(Map<String, Integer> mix) {
+        for (var entry : mix.entrySet()) {
+            if (!PROTOCOLS.contains(entry.getKey())) {
+                throw new IllegalArgumentException("Unknown protocol in mix: " + entry.getKey() + " (expected TCP, UDP or HTTP)");
+            }
+            if (entry.getValue() < 0) {
+                throw new IllegalArgumentException("Negative weight in mix: " + entry.getKey() + ":" + entry.getValue());
+            }
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Protocol mix has no weight: " + mix);
+        }
+    }
+
+    // Deterministic weighted round-robin, so runs with the same parameters produce the same config
+    private static String pick(Map<String, Integer> mix, int weights, int index) {
+        var slot = index % weights;
+        for (var entry : mix.entrySet()) {
+            slot -= entry.getValue();
+            if (slot < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty protocol mix");
+    }
+}
@@ -0,0 +1,72 @@
+package net.argus.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Repeatable runs are the point of the harness, so the layout is pinned here rather than merely checked for shape
+class ConfigGeneratorTest {
+    private static final Behavior HEALTHY = Behavior.PROFILES.get(0);
+    private static final Behavior SLOW = Behavior.PROFILES.get(1);
+    private static final List<SimulationFarm.Target> TARGETS = List.of(
+              new SimulationFarm.Target("TCP", 30000, HEALTHY)
+            , new SimulationFarm.Target("TCP", 30001, SLOW)
+            , new SimulationFarm.Target("UDP", 31000, HEALTHY)
+            , new SimulationFarm.Target("HTTP", 32000, HEALTHY));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void behaviorsFollowTheirWeightsInAFixedCycle() {
+        final var names = new ArrayList<String>();
+        for (var slot = 0; slot < 10; slot++) {
+            names.add(Behavior.forSlot(slot).name());
+        }
+        assertEquals(List.of("healthy", "healthy", "healthy", "slow", "jittery", "lossy", "flapping", "blackhole", "healthy", "healthy"), names);
+    }
+
+    @Test
+    void sameParametersWriteTheSameConfig() throws Exception {
+        final var first = dir.resolve("first.json");
+        final var second = dir.resolve("second.json");
+        new ConfigGenerator().write(first, "localhost:18000", 6, mix("TCP", 2, "UDP", 1), 10, 1000, TARGETS, "127.0.0.1");
+        new ConfigGenerator().write(second, "localhost:18000", 6, mix("TCP", 2, "UDP", 1), 10, 1000, TARGETS, "127.0.0.1");
+
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        final var names = new ArrayList<String>();
+        for (var destination : new ObjectMapper().readTree(first.toFile()).get("monitors").get(0).get("destinations")) {
+            names.add(destination.get("name").asText());
+        }
+        assertEquals(List.of("tcp-healthy-0", "tcp-healthy-1", "udp-healthy-2", "tcp-slow-3", "tcp-healthy-4", "udp-healthy-5"), names);
+    }
+
+    @Test
+    void mixWithoutTargetsIsRejectedByName() {
+        final var unknown = assertThrows(IllegalArgumentException.class,
+                () -> new ConfigGenerator().write(dir.resolve("c.json"), "localhost:18000", 6, mix("TCP", 1, "SCTP", 10), 10, 1000, TARGETS, "127.0.0.1"));
+        assertTrue(unknown.getMessage().startsWith("Unknown protocol in mix: SCTP"), unknown.getMessage());
+
+        final var missing = assertThrows(IllegalArgumentException.class,
+                () -> new ConfigGenerator().write(dir.resolve("c.json"), "localhost:18000", 6, mix("TCP", 1, "HTTP", 1), 10, 1000, TARGETS.subList(0, 3), "127.0.0.1"));
+        assertEquals("No farm targets for protocol in mix: HTTP", missing.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> ConfigGenerator.validate(mix("TCP", 0, "UDP", 0)));
+    }
+
+    private static Map<String, Integer> mix(String first, int firstWeight, String second, int secondWeight) {
+        final var mix = new LinkedHashMap<String, Integer>();
+        mix.put(first, firstWeight);
+        mix.put(second, secondWeight);
+        return mix;
+    }
+}
@@ -0,0 +1,106 @@
+package net.argus.sim;
+
+import ch.qos.logback.classic.Level;
+import net.argus.Main;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Runs Argus against a loopback target farm and reports engine throughput. Lives in the test tree; after mvn package:
+ * java -cp target/argus-monitor-1.0.0.jar:target/test-classes net.argus.sim.Simulation [monitors=50000] [duration=300] [interval=20]
+ *        [timeout=1000] [ports=16] [basePort=30000] [mix=TCP:40,UDP:30,HTTP:30] [listen=localhost:18000]
+ */
+public class Simulation {
+    private static final Logger logger = LoggerFactory.getLogger(Simulation.class);
+    private static final int REPORT_SECONDS = 10;
+
+    static void main(String[] args) throws Exception {
+        final var options = new HashMap<String, String>();
+        for (var arg : args) {
+            final var eq = arg.indexOf('=');
+            if (eq <= 0) {
+                System.err.println("Arguments are key=value pairs, got: " + arg);
+                System.exit(1);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        final var monitors = Integer.parseInt(options.getOrDefault("monitors", "50000"));
+        final var duration = Integer.parseInt(options.getOrDefault("duration", "300"));
+        final var interval = Integer.parseInt(options.getOrDefault("interval", "20"));
+        final var timeout = Integer.parseInt(options.getOrDefault("timeout", "1000"));
+        final var ports = Integer.parseInt(options.getOrDefault("ports", "16"));
+        final var basePort = Integer.parseInt(options.getOrDefault("basePort", "30000"));
+        final var listen = options.getOrDefault("listen", "localhost:18000");
+        final var mix = parseMix(options.getOrDefault("mix", "TCP:40,UDP:30,HTTP:30"));
+        ConfigGenerator.validate(mix);
+
+        // Per-monitor debug logging would dominate at this scale
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("net.argus")).setLevel(Level.INFO);
+
+        final var farm = new SimulationFarm(basePort, ports);
+        final var config = Files.createTempFile("argus-sim-", ".json");
+        try {
+            new ConfigGenerator().write(config, listen, monitors, mix, interval, timeout, farm.targets(), farm.host());
+            logger.info("Generated {} monitors ({}) into {}", monitors, mix, config);
+            run(config.toString(), listen, monitors, interval, duration);
+        } finally {
+            farm.stop();
+            Files.deleteIfExists(config);
+        }
+        System.exit(0);
+    }
+
+    private static void run(String config, String listen, int monitors, int interval, int duration) throws Exception {
+        final var argus = new Main(config);
+        final var client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        final var dashboard = HttpRequest.newBuilder(URI.create("http://" + listen + "/")).timeout(Duration.ofSeconds(30)).build();
+
+        var totalChecks = 0L;
+        for (var elapsed = 0; elapsed < duration; elapsed += REPORT_SECONDS) {
+            Thread.sleep(REPORT_SECONDS * 1000L);
+
+            final var renderStart = System.nanoTime();
+            final var page = client.send(dashboard, HttpResponse.BodyHandlers.ofByteArray());
+            final var renderMs = (System.nanoTime() - renderStart) / 1_000_000;
+
+            final var sample = argus.stats().sampleAndReset();
+            totalChecks += sample.checks();
+            final var runtime = Runtime.getRuntime();
+            logger.info("Sim {}s: runs/s={}, checks/s={} (expected {}), scheduling lag avg={}ms max={}ms, result latency avg={}ms max={}ms, dashboard={}ms/{}KB, heap={}MB",
+                    elapsed + REPORT_SECONDS
+                    , sample.runs() / REPORT_SECONDS
+                    , sample.checks() / REPORT_SECONDS
+                    , monitors / interval
+                    , Math.round(sample.lagAvgMs())
+                    , Math.round(sample.lagMaxMs())
+                    , Math.round(sample.latencyAvgMs())
+                    , Math.round(sample.latencyMaxMs())
+                    , renderMs
+                    , page.body().length / 1024
+                    , (runtime.totalMemory() - runtime.freeMemory()) / 1024 / 1024);
+        }
+
+        logger.info("Simulation finished: {} checks in {}s ({} checks/s sustained)", totalChecks, duration, totalChecks / Math.max(duration, 1));
+        argus.shutdown();
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        final var parsed = new LinkedHashMap<String, Integer>();
+        for (var part : mix.split(",")) {
+            final var pieces = part.split(":");
+            parsed.put(pieces[0].trim().toUpperCase(), Integer.parseInt(pieces[1].trim()));
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,243 @@
+package net.argus.sim;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Loopback TCP, UDP and HTTP servers; each port follows one Behavior so generated monitors see a known mix of conditions
+public class SimulationFarm {
+    private static final Logger logger = LoggerFactory.getLogger(SimulationFarm.class);
+    private static final byte[] HTTP_BODY = "{\"status\":\"UP\"}".getBytes(StandardCharsets.UTF_8);
+
+    public record Target(String protocol, int port, Behavior behavior) {}
+
+    private final InetAddress loopback = InetAddress.getLoopbackAddress();
+    private final long startMs = System.currentTimeMillis();
+    private final ScheduledExecutorService delays = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "sim-delay"));
+    private final List<Target> targets = new ArrayList<>();
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private final ConcurrentHashMap<Integer, ServerSocketChannel> tcpListeners = new ConcurrentHashMap<>();
+
+    public SimulationFarm(int basePort, int portsPerProtocol) throws IOException {
+        try {
+            for (var i = 0; i < portsPerProtocol; i++) {
+                final var behavior = Behavior.forSlot(i);
+                startTcp(basePort + i, behavior);
+                startUdp(basePort + 1000 + i, behavior);
+                startHttp(basePort + 2000 + i, behavior);
+            }
+        } catch (IOException e) {
+            stop(); // servers already started would otherwise keep the JVM alive
+            throw e;
+        }
+        logger.info("Simulation farm started: {} targets on {} from port {}", targets.size(), loopback.getHostAddress(), basePort);
+    }
+
+    public List<Target> targets() {
+        return targets;
+    }
+
+    public String host() {
+        return loopback.getHostAddress();
+    }
+
+    public void stop() {
+        delays.shutdownNow();
+        for (var resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception ignored) {
+                // Shutting down anyway
+            }
+        }
+        tcpListeners.values().forEach(SimulationFarm::closeQuietly);
+    }
+
+    private long elapsedMs() {
+        return System.currentTimeMillis() - startMs;
+    }
+
+    // The kernel completes TCP handshakes on its own, so only refusal (flapping) and a full backlog (blackhole) can be simulated
+    private void startTcp(int port, Behavior behavior) throws IOException {
+        final var address = new InetSocketAddress(loopback, port);
+        if (behavior.blackhole()) {
+            final var listener = listen(address, 1);
+            tcpListeners.put(port, listener); // never accepted: the backlog fills and further SYNs go unanswered
+        } else {
+            tcpListeners.put(port, listen(address, 4096));
+            Thread.ofVirtual().name("sim-tcp-" + port).start(() -> acceptLoop(port));
+            if (behavior.downSeconds() > 0) {
+                delays.scheduleAtFixedRate(() -> flapTcp(port, address, behavior), 1, 1, TimeUnit.SECONDS);
+            }
+        }
+        targets.add(new Target("TCP", port, behavior));
+    }
+
+    // Earlier runs leave thousands of loopback connections in TIME_WAIT, some on the ports used here
+    private static ServerSocketChannel listen(InetSocketAddress address, int backlog) throws IOException {
+        final var listener = ServerSocketChannel.open();
+        listener.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        return listener.bind(address, backlog);
+    }
+
+    private void acceptLoop(int port) {
+        while (!delays.isShutdown()) {
+            final var listener = tcpListeners.get(port);
+            if (listener == null || !listener.isOpen()) {
+                sleep(100);
+                continue;
+            }
+            try {
+                listener.accept().close();
+            } catch (IOException e) {
+                // Listener closed by flapping; the loop picks up the new one
+            }
+        }
+    }
+
+    private void flapTcp(int port, InetSocketAddress address, Behavior behavior) {
+        final var listener = tcpListeners.get(port);
+        final var down = behavior.isDown(elapsedMs());
+        try {
+            if (down && listener.isOpen()) {
+                listener.close();
+            } else if (!down && !listener.isOpen()) {
+                tcpListeners.put(port, listen(address, 4096));
+            }
+        } catch (IOException e) {
+            logger.warn("Cannot flap TCP port {}: {}", port, e.getMessage());
+        }
+    }
+
+    private void startUdp(int port, Behavior behavior) throws IOException {
+        final var channel = DatagramChannel.open().bind(new InetSocketAddress(loopback, port));
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+        resources.add(channel);
+        Thread.ofPlatform().daemon().name("sim-udp-" + port).start(() -> udpLoop(channel, behavior));
+        targets.add(new Target("UDP", port, behavior));
+    }
+
+    private void udpLoop(DatagramChannel channel, Behavior behavior) {
+        final var buffer = ByteBuffer.allocate(65535);
+        final var random = ThreadLocalRandom.current();
+        while (channel.isOpen()) {
+            try {
+                buffer.clear();
+                final var source = channel.receive(buffer);
+                buffer.flip();
+                if (behavior.blackhole() || behavior.isDown(elapsedMs()) || behavior.drops(random) || buffer.remaining() == 0) {
+                    continue;
+                }
+                final var reply = reply(buffer);
+                final var delay = behavior.latency().sampleMs(random);
+                if (delay == 0) {
+                    send(channel, reply, source);
+                } else {
+                    delays.schedule(() -> send(channel, reply, source), delay, TimeUnit.MILLISECONDS);
+                }
+            } catch (IOException e) {
+                if (channel.isOpen()) {
+                    logger.debug("Simulated UDP receive failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Answers in the shape Argus correlates on: NTP server mode with the originate timestamp, SNMP response PDU, DNS QR bit
+    private static ByteBuffer reply(ByteBuffer request) {
+        final var reply = ByteBuffer.allocate(request.remaining()).put(request).flip();
+        if (reply.limit() == 48 && (reply.get(0) & 0x07) == 3) {
+            reply.put(0, (byte) 0x24);
+            reply.putLong(24, reply.getLong(40));
+            reply.putLong(40, System.currentTimeMillis());
+        } else if (reply.limit() > 2 && (reply.get(0) & 0xff) == 0x30 && reply.get(2) == 0x02) {
+            for (var i = 0; i < reply.limit(); i++) {
+                if ((reply.get(i) & 0xff) == 0xa0) {
+                    reply.put(i, (byte) 0xa2);
+                    break;
+                }
+            }
+        } else if (reply.limit() >= 12) {
+            reply.put(2, (byte) (reply.get(2) | 0x80));
+        }
+        return reply;
+    }
+
+    private static void send(DatagramChannel channel, ByteBuffer reply, SocketAddress target) {
+        try {
+            channel.send(reply, target);
+        } catch (IOException e) {
+            logger.debug("Simulated UDP reply failed: {}", e.getMessage());
+        }
+    }
+
+    private void startHttp(int port, Behavior behavior) throws IOException {
+        final var server = HttpServer.create(new InetSocketAddress(loopback, port), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> handleHttp(exchange, behavior));
+        server.start();
+        resources.add(() -> server.stop(0));
+        targets.add(new Target("HTTP", port, behavior));
+    }
+
+    private void handleHttp(HttpExchange exchange, Behavior behavior) throws IOException {
+        final var random = ThreadLocalRandom.current();
+        try (exchange) {
+            if (behavior.blackhole()) {
+                sleep(TimeUnit.MINUTES.toMillis(2));
+                return;
+            }
+            if (behavior.drops(random)) {
+                return; // closed without a response
+            }
+            sleep(behavior.latency().sampleMs(random));
+            if (behavior.isDown(elapsedMs())) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, HTTP_BODY.length);
+            exchange.getResponseBody().write(HTTP_BODY);
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Shutting down anyway
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        final var thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
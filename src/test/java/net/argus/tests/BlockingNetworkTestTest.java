@@ -0,0 +1,53 @@
+package net.argus.tests;
+
+import net.argus.TestConfig;
+import net.argus.TestResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockingNetworkTestTest {
+    private final AtomicInteger timeoutSeen = new AtomicInteger(-1);
+
+    private final BlockingNetworkTest probe = new BlockingNetworkTest() {
+        @Override
+        protected TestResult executeBlocking(TestConfig config, int timeoutMs) {
+            timeoutSeen.set(timeoutMs);
+            return new TestResult(true, 0, LocalDateTime.now(), null);
+        }
+
+        @Override
+        public String method() {
+            return "Stub";
+        }
+
+        @Override
+        public String getDescription(TestConfig config) {
+            return "stub";
+        }
+
+        @Override
+        public void validateConfig(TestConfig config) {
+            // Accepts anything
+        }
+    };
+
+    @Test
+    void expiredDeadlineFailsWithoutRunningTheProbe() throws Exception {
+        final var result = probe.execute(null, Deadline.after(0)).toCompletableFuture().get();
+
+        assertFalse(result.success());
+        assertEquals(-1, timeoutSeen.get(), "a timeout of 0 means infinite to blocking sockets");
+    }
+
+    @Test
+    void liveDeadlinePassesAPositiveTimeout() throws Exception {
+        final var result = probe.execute(null, Deadline.after(1000)).toCompletableFuture().get();
+
+        assertTrue(result.success());
+        assertTrue(timeoutSeen.get() > 0 && timeoutSeen.get() <= 1000);
+    }
+}
@@ -0,0 +1,145 @@
+package net.argus.tests;
+
+import net.argus.BodyExpectation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BodyInspectorTest {
+
+    @Test
+    void needleSplitAcrossEveryPossibleBoundaryIsFound() throws IOException {
+        // Self-overlapping needle, so a naive restart after a partial match would miss it
+        final var body = "xxabaabaabacxx";
+        for (var chunk = 1; chunk <= body.length(); chunk++) {
+            assertNull(inspect(contains("abaabac"), body, chunk), "chunk " + chunk);
+        }
+        assertEquals("Body does not contain 'abaabad'", inspect(contains("abaabad"), body, 3));
+    }
+
+    @Test
+    void needleStraddlingFullSizeChunksIsFound() throws IOException {
+        final var body = "a".repeat(BodyInspector.CHUNK_SIZE - 3) + "needle" + "a".repeat(BodyInspector.CHUNK_SIZE);
+        assertNull(inspect(contains("needle"), body, BodyInspector.CHUNK_SIZE));
+    }
+
+    @Test
+    void regexMatchSpanningChunksIsFoundWithinTheWindow() throws IOException {
+        final var body = "-".repeat(BodyInspector.CHUNK_SIZE - 10) + "version=1.2.3;" + "-".repeat(100);
+        assertNull(inspect(regex("version=\\d+\\.\\d+\\.\\d+;"), body, BodyInspector.CHUNK_SIZE));
+        assertNull(inspect(regex("version=\\d+\\.\\d+\\.\\d+;"), body, 7));
+        assertEquals("Body does not match /version=2/", inspect(regex("version=2"), body, 7));
+    }
+
+    @Test
+    void multiByteCharacterSplitBetweenReadsStillMatches() throws IOException {
+        final var bytes = "status: déjà vu".getBytes(StandardCharsets.UTF_8);
+        for (var chunk = 1; chunk < 5; chunk++) {
+            assertNull(inspect(regex("déjà"), bytes, chunk, StandardCharsets.UTF_8), "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void responseCharsetIsHonoured() throws IOException {
+        final var latin1 = "café".getBytes(StandardCharsets.ISO_8859_1);
+        assertNull(inspect(contains("café"), latin1, 2, StandardCharsets.ISO_8859_1));
+        assertNull(inspect(regex("caf."), latin1, 2, StandardCharsets.ISO_8859_1));
+        assertNotNull(inspect(contains("café"), latin1, 2, StandardCharsets.UTF_8));
+        assertEquals(StandardCharsets.ISO_8859_1, NetworkTestUrl.charset("text/plain; charset=\"ISO-8859-1\""));
+        assertEquals(StandardCharsets.UTF_8, NetworkTestUrl.charset("text/plain; charset=no-such-charset"));
+        assertEquals(StandardCharsets.UTF_8, NetworkTestUrl.charset(null));
+    }
+
+    @Test
+    void jsonPointerMatchesScalarsSplitAcrossReads() throws IOException {
+        final var body = "{\"checks\":[{\"name\":\"db\",\"state\":\"up\"},{\"name\":\"cache\",\"state\":\"degraded\"}],\"ok\":true}";
+        for (var chunk = 1; chunk <= 16; chunk *= 2) {
+            assertNull(inspect(json("/checks/1/state", "degraded"), body, chunk), "chunk " + chunk);
+        }
+        assertNull(inspect(json("/ok", "true"), body, 5));
+        assertNull(inspect(json("/checks/0/name", null), body, 5));
+        assertEquals("JSON /checks/0/state is 'up', expected 'down'", inspect(json("/checks/0/state", "down"), body, 5));
+        assertEquals("JSON pointer /missing not found", inspect(json("/missing", null), body, 5));
+    }
+
+    @Test
+    void jsonPointerAtContainerIsTypeMismatch() throws IOException {
+        final var body = "{\"checks\":[1,2],\"db\":{\"state\":\"up\"}}";
+        assertEquals("JSON /db is an object, expected 'up'", inspect(json("/db", "up"), body, 4));
+        assertEquals("JSON /checks is an array, expected '2'", inspect(json("/checks", "2"), body, 4));
+        assertNull(inspect(json("/db", null), body, 4));
+    }
+
+    @Test
+    void bodyThatIsNotJsonIsAMismatch() throws IOException {
+        assertEquals("Body is not valid JSON", inspect(json("/status", "up"), "<html><body>Service up</body></html>", 7));
+        assertEquals("Body is not valid JSON", inspect(json("/status", "up"), "{\"other\": 1, \"sta", 7));
+        assertEquals("JSON pointer /status not found", inspect(json("/status", "up"), "{\"other\": 1}", 7));
+    }
+
+    @Test
+    void endlessJsonStringIsCutOffInsteadOfBuffered() throws IOException {
+        // Never closes: were the whole token held, this would read until the heap ran out
+        final var endless = new InputStream() {
+            private final byte[] head = "{\"blob\": \"".getBytes(StandardCharsets.UTF_8);
+            private int position = 0;
+
+            @Override
+            public int read() {
+                return position < head.length ? head[position++] : 'A';
+            }
+        };
+        final var inspector = new BodyInspector(json("/status", "up"), null, StandardCharsets.UTF_8);
+        assertEquals("Body has a JSON string or name longer than 65536 characters", inspector.inspect(endless));
+    }
+
+    @Test
+    void maxBodyIsEnforced() throws IOException {
+        final var expect = new BodyExpectation("a", null, null, null, 10);
+        assertNull(inspect(expect, "a".repeat(10), 3));
+        assertEquals("Body exceeds 10 bytes", inspect(expect, "a".repeat(11), 3));
+    }
+
+    private static String inspect(BodyExpectation expect, String body, int chunk) throws IOException {
+        return inspect(expect, body.getBytes(StandardCharsets.UTF_8), chunk, StandardCharsets.UTF_8);
+    }
+
+    private static String inspect(BodyExpectation expect, byte[] body, int chunk, Charset charset) throws IOException {
+        final var pattern = expect.regex() != null ? Pattern.compile(expect.regex()) : null;
+        return new BodyInspector(expect, pattern, charset).inspect(new Trickle(body, chunk));
+    }
+
+    private static BodyExpectation contains(String text) {
+        return new BodyExpectation(text, null, null, null, 0);
+    }
+
+    private static BodyExpectation regex(String regex) {
+        return new BodyExpectation(null, regex, null, null, 0);
+    }
+
+    private static BodyExpectation json(String pointer, String value) {
+        return new BodyExpectation(null, null, pointer, value, 0);
+    }
+
+    // Hands out at most chunk bytes per read, the way a slow socket would
+    private static class Trickle extends ByteArrayInputStream {
+        private final int chunk;
+
+        Trickle(byte[] body, int chunk) {
+            super(body);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.argus.tests;
+
+import net.argus.Protocol;
+import net.argus.TestConfig;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkTestConnectTest {
+
+    @Test
+    void literalAddressesAreRecognised() {
+        assertTrue(NetworkTestConnect.isLiteral("127.0.0.1"));
+        assertTrue(NetworkTestConnect.isLiteral("::1"));
+        assertTrue(NetworkTestConnect.isLiteral("fe80::1%eth0"));
+        assertFalse(NetworkTestConnect.isLiteral("localhost"));
+        assertFalse(NetworkTestConnect.isLiteral("1password.com"));
+        assertFalse(NetworkTestConnect.isLiteral("10.0.0.1.example.net"));
+        assertFalse(NetworkTestConnect.isLiteral(""));
+    }
+
+    @Test
+    void tcpConnectToLiteralAddress() throws Exception {
+        try (var server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            final var config = new TestConfig("Connect", Protocol.TCP, server.getLocalPort(), null, null, "127.0.0.1", null, null, null, null);
+            final var result = new NetworkTestConnect().execute(config, Deadline.after(2000)).toCompletableFuture().get();
+
+            assertTrue(result.success(), result.error());
+        }
+    }
+}
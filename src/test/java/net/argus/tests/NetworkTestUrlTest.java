@@ -0,0 +1,243 @@
+package net.argus.tests;
+
+import net.argus.BodyExpectation;
+import net.argus.TestConfig;
+import net.argus.TestResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.util.List;
+
+import static net.argus.tests.StandInServer.send;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkTestUrlTest {
+    private static final String OK = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok";
+
+    private final NetworkTestUrl test = new NetworkTestUrl();
+
+    @Test
+    void plainHttpReportsEveryPhaseButTls() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out, OK))) {
+            final var result = run(server.url("/"), null, 2000);
+
+            assertTrue(result.success(), result.error());
+            final var phases = result.phases();
+            assertTrue(phases.resolve() >= 0 && phases.connect() >= 0 && phases.firstByte() >= 0 && phases.body() >= 0);
+            assertEquals(-1, phases.tls());
+        }
+    }
+
+    @Test
+    void injectedDelayLandsInFirstByte() throws Exception {
+        try (var server = new StandInServer((request, out) -> {
+            Thread.sleep(300);
+            send(out, OK);
+        })) {
+            final var result = run(server.url("/"), null, 2000);
+
+            assertTrue(result.success(), result.error());
+            assertTrue(result.phases().firstByte() >= 250, "firstByte " + result.phases().firstByte());
+            assertTrue(result.phases().connect() < 250, "connect " + result.phases().connect());
+        }
+    }
+
+    @Test
+    void chunkedBodyIsDecodedAcrossChunks() throws Exception {
+        try (var server = new StandInServer((request, out) -> {
+            send(out, "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n");
+            send(out, "4;name=value\r\nstat\r\n");
+            Thread.sleep(50);
+            send(out, "6\r\nus: up\r\n");
+            send(out, "0\r\nTrailer: x\r\n\r\n");
+        })) {
+            assertTrue(run(server.url("/"), expectContains("status: up"), 2000).success());
+
+            final var missing = run(server.url("/"), expectContains("down"), 2000);
+            assertFalse(missing.success());
+            assertEquals("Body does not contain 'down'", missing.error());
+        }
+    }
+
+    @Test
+    void interimResponsesAreSkipped() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out,
+                "HTTP/1.1 100 Continue\r\n\r\n"
+                + "HTTP/1.1 103 Early Hints\r\nLink: </style.css>; rel=preload\r\n\r\n"
+                + (request.contains("/down") ? "HTTP/1.1 503 Unavailable\r\nContent-Length: 0\r\n\r\n" : OK)))) {
+            assertTrue(run(server.url("/up"), expectContains("ok"), 2000).success());
+            assertFalse(run(server.url("/down"), null, 2000).success());
+        }
+    }
+
+    @Test
+    void redirectsAreFollowed() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out, request.contains("/start")
+                ? "HTTP/1.1 302 Found\r\nLocation: /end\r\nContent-Length: 0\r\n\r\n"
+                : OK))) {
+            final var result = run(server.url("/start"), null, 2000);
+
+            assertTrue(result.success(), result.error());
+            assertEquals(2, server.requests().size());
+        }
+    }
+
+    @Test
+    void redirectToAnotherSchemeFails() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out,
+                "HTTP/1.1 302 Found\r\nLocation: file:///etc/passwd\r\nContent-Length: 0\r\n\r\n"))) {
+            final var result = run(server.url("/"), null, 2000);
+
+            assertFalse(result.success());
+            assertTrue(result.error().startsWith("Redirect to unsupported URL"), result.error());
+        }
+    }
+
+    @Test
+    void tricklingBodyIsCutOffAtTheDeadline() throws Exception {
+        try (var server = new StandInServer((request, out) -> {
+            send(out, "HTTP/1.1 200 OK\r\nContent-Length: 1000\r\n\r\n");
+            for (var i = 0; i < 1000; i++) {
+                Thread.sleep(50); // each byte well inside any per-read timeout
+                send(out, "x");
+            }
+        })) {
+            final var result = run(server.url("/"), null, 500);
+
+            assertFalse(result.success());
+            assertTrue(result.duration() < 1000, "took " + result.duration() + "ms");
+            assertTrue(result.phases().firstByte() >= 0);
+            assertEquals(-1, result.phases().body());
+        }
+    }
+
+    @Test
+    void endlessBodyStopsAtTheSizeLimit() throws Exception {
+        try (var server = new StandInServer((request, out) -> {
+            send(out, "HTTP/1.1 200 OK\r\n\r\n");
+            final var block = new byte[64 * 1024];
+            while (true) {
+                out.write(block);
+            }
+        })) {
+            final var result = run(server.url("/"), null, 10_000);
+
+            assertTrue(result.success(), result.error());
+            assertTrue(result.duration() < 10_000);
+        }
+    }
+
+    @Test
+    void refusedConnectionReportsOnlyResolve() throws Exception {
+        final int port;
+        try (var closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        final var result = run("http://127.0.0.1:" + port + "/", null, 2000);
+
+        assertFalse(result.success());
+        assertTrue(result.phases().resolve() >= 0);
+        assertEquals(-1, result.phases().connect());
+        assertEquals(-1, result.phases().firstByte());
+    }
+
+    @Test
+    void nonHttpSchemesAreRejected() {
+        for (var url : new String[] {"file:/etc/passwd", "ftp://example.com/file", "jar:file:/tmp/a.jar!/b", "http:///no-host"}) {
+            assertThrows(IllegalArgumentException.class, () -> test.validateConfig(config(url, null)), url);
+        }
+        final var viaFileProxy = new TestConfig("URL", null, 0, "http://example.com/", "file:/tmp/proxy", null, null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> test.validateConfig(viaFileProxy));
+    }
+
+    @Test
+    void httpsHandshakeDelayLandsInTls() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out, OK), StandInServer.serverTls(), 300)) {
+            final var result = new NetworkTestUrl(StandInServer.clientTls()).executeBlocking(config(server.url("/"), null), 3000);
+
+            assertTrue(result.success(), result.error());
+            assertTrue(result.phases().tls() >= 250, "tls " + result.phases().tls());
+            assertTrue(result.phases().connect() < 250, "connect " + result.phases().connect());
+            assertTrue(result.phases().firstByte() >= 0 && result.phases().body() >= 0);
+        }
+    }
+
+    @Test
+    void untrustedCertificateFailsTheHandshake() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out, OK), StandInServer.serverTls(), 0)) {
+            final var result = run(server.url("/"), null, 3000);
+
+            assertFalse(result.success());
+            assertTrue(result.phases().connect() >= 0);
+            assertEquals(-1, result.phases().tls());
+        }
+    }
+
+    @Test
+    void httpsThroughConfiguredProxyTunnelsWithConnect() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out, OK), StandInServer.serverTls(), 0);
+             var proxy = new StandInProxy(server.address())) {
+            final var config = new TestConfig("URL", null, 0, "https://localhost:" + server.address().getPort() + "/status", proxy.url(), null, null, null, null, null);
+            final var result = new NetworkTestUrl(StandInServer.clientTls()).executeBlocking(config, 3000);
+
+            assertTrue(result.success(), result.error());
+            assertEquals(List.of("CONNECT localhost:" + server.address().getPort() + " HTTP/1.1"), proxy.requests());
+            assertEquals(List.of("GET /status HTTP/1.1"), server.requests());
+            assertTrue(result.phases().tls() >= 0);
+        }
+    }
+
+    @Test
+    void tunnelledCertificateMustMatchTheRequestedHost() throws Exception {
+        try (var server = new StandInServer((request, out) -> send(out, OK), StandInServer.serverTls(), 0);
+             var proxy = new StandInProxy(server.address())) {
+            // The proxy leads to the stand-in whatever the name, but its certificate only covers 127.0.0.1 and localhost
+            final var config = new TestConfig("URL", null, 0, "https://argus.invalid/", proxy.url(), null, null, null, null, null);
+            final var result = new NetworkTestUrl(StandInServer.clientTls()).executeBlocking(config, 3000);
+
+            assertFalse(result.success());
+            assertEquals(List.of("CONNECT argus.invalid:443 HTTP/1.1"), proxy.requests());
+            assertEquals(-1, result.phases().tls());
+        }
+    }
+
+    @Test
+    void refusedConnectIsReported() throws Exception {
+        try (var proxy = new StandInServer((request, out) -> send(out, "HTTP/1.1 403 Forbidden\r\n\r\n"))) {
+            final var config = new TestConfig("URL", null, 0, "https://argus.invalid/", proxy.url(""), null, null, null, null, null);
+            final var result = test.executeBlocking(config, 3000);
+
+            assertFalse(result.success());
+            assertEquals("Proxy CONNECT failed: HTTP 403 Forbidden", result.error());
+        }
+    }
+
+    @Test
+    void jvmProxySelectorIsUsedWhenNoProxyIsConfigured() throws Exception {
+        final var previous = ProxySelector.getDefault();
+        try (var proxy = new StandInServer((request, out) -> send(out, OK))) {
+            ProxySelector.setDefault(ProxySelector.of(proxy.address()));
+            final var result = run("http://argus.invalid/health?full=1", null, 3000);
+
+            assertTrue(result.success(), result.error());
+            assertEquals(List.of("GET http://argus.invalid/health?full=1 HTTP/1.1"), proxy.requests());
+        } finally {
+            ProxySelector.setDefault(previous);
+        }
+    }
+
+    private TestResult run(String url, BodyExpectation expect, int timeoutMs) throws IOException {
+        return test.executeBlocking(config(url, expect), timeoutMs);
+    }
+
+    private static TestConfig config(String url, BodyExpectation expect) {
+        return new TestConfig("URL", null, 0, url, null, null, null, null, expect, null);
+    }
+
+    private static BodyExpectation expectContains(String text) {
+        return new BodyExpectation(text, null, null, null, 0);
+    }
+}
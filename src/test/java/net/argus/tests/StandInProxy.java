@@ -0,0 +1,87 @@
+package net.argus.tests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Loopback CONNECT proxy for probe tests: whatever host a CONNECT names, the tunnel leads to one fixed stand-in
+class StandInProxy implements AutoCloseable {
+    private final ServerSocket server;
+    private final InetSocketAddress target;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    StandInProxy(InetSocketAddress target) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.target = target;
+        Thread.ofVirtual().start(this::accept);
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getLocalPort();
+    }
+
+    List<String> requests() {
+        return requests;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                final var client = server.accept();
+                Thread.ofVirtual().start(() -> tunnel(client));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void tunnel(Socket client) {
+        try (client; var upstream = new Socket(target.getAddress(), target.getPort())) {
+            // Byte by byte, so nothing past the request head is swallowed before the tunnel starts
+            final var in = client.getInputStream();
+            final var requestLine = readLine(in);
+            while (!readLine(in).isEmpty()) {
+                // Request headers are not checked
+            }
+            requests.add(requestLine);
+            StandInServer.send(client.getOutputStream(), "HTTP/1.1 200 Connection established\r\n\r\n");
+
+            Thread.ofVirtual().start(() -> pipe(upstream, client));
+            pipe(client, upstream);
+        } catch (IOException e) {
+            // Either side hung up
+        }
+    }
+
+    private static void pipe(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+            to.shutdownOutput();
+        } catch (IOException e) {
+            // Either side hung up
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        final var line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new IOException("Closed inside the request head");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package net.argus.tests;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Loopback HTTP/1.1 peer for probe tests: reads each request head, then hands the raw socket output to a script.
+// Over TLS it serves the self-signed tls/standin.p12 (127.0.0.1 and localhost), which only clientTls() trusts.
+class StandInServer implements AutoCloseable {
+    private static final char[] PASSWORD = "changeit".toCharArray();
+
+    interface Script {
+        void respond(String requestLine, OutputStream out) throws Exception;
+    }
+
+    private final ServerSocket server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final SSLContext tls;
+    private final long handshakeDelayMs;
+
+    StandInServer(Script script) throws IOException {
+        this(script, null, 0);
+    }
+
+    // handshakeDelayMs holds back the server's side of each TLS handshake
+    StandInServer(Script script, SSLContext tls, long handshakeDelayMs) throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.tls = tls;
+        this.handshakeDelayMs = handshakeDelayMs;
+        Thread.ofVirtual().start(() -> accept(script));
+    }
+
+    String url(String path) {
+        return (tls != null ? "https" : "http") + "://127.0.0.1:" + server.getLocalPort() + path;
+    }
+
+    InetSocketAddress address() {
+        return (InetSocketAddress) server.getLocalSocketAddress();
+    }
+
+    List<String> requests() {
+        return requests;
+    }
+
+    static void send(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+
+    private void accept(Script script) {
+        while (!server.isClosed()) {
+            try {
+                final var socket = server.accept();
+                Thread.ofVirtual().start(() -> serve(socket, script));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    static SSLContext serverTls() throws Exception {
+        final var keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(store("/tls/standin.p12"), PASSWORD);
+        final var context = SSLContext.getInstance("TLS");
+        context.init(keys.getKeyManagers(), null, null);
+        return context;
+    }
+
+    static SSLSocketFactory clientTls() throws Exception {
+        final var trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(store("/tls/standin-trust.p12"));
+        final var context = SSLContext.getInstance("TLS");
+        context.init(null, trust.getTrustManagers(), null);
+        return context.getSocketFactory();
+    }
+
+    private static KeyStore store(String resource) throws Exception {
+        try (var in = StandInServer.class.getResourceAsStream(resource)) {
+            final var store = KeyStore.getInstance("PKCS12");
+            store.load(in, PASSWORD);
+            return store;
+        }
+    }
+
+    private void serve(Socket plain, Script script) {
+        try (var socket = tls != null ? secure(plain) : plain) {
+            final var in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            final var requestLine = in.readLine();
+            for (var line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+                // Request headers are not checked
+            }
+            requests.add(requestLine);
+            script.respond(requestLine, socket.getOutputStream());
+        } catch (Exception e) {
+            // The probe hung up first, which several tests do on purpose
+        }
+    }
+
+    private Socket secure(Socket plain) throws Exception {
+        Thread.sleep(handshakeDelayMs);
+        final var ssl = (SSLSocket) tls.getSocketFactory().createSocket(plain, null, plain.getPort(), true);
+        ssl.setUseClientMode(false);
+        ssl.startHandshake();
+        return ssl;
+    }
+}
@@ -0,0 +1,129 @@
+package net.argus.tests;
+
+import net.argus.UdpPayload;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpProbeEngineTest {
+
+    @Test
+    void concurrentHexProbesToOneTargetEachGetTheirOwnReply() throws Exception {
+        try (var echo = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            Thread.ofVirtual().start(() -> echo(echo, 100));
+            final var target = new InetSocketAddress(InetAddress.getLoopbackAddress(), echo.getLocalPort());
+            final var engine = UdpProbeEngine.get();
+
+            final var first = engine.probe(target, UdpPayload.HEX, "01 02", 2000);
+            final var second = engine.probe(target, UdpPayload.HEX, "03 04 05", 2000);
+
+            assertEquals(2, first.get());
+            assertEquals(3, second.get());
+        }
+    }
+
+    @Test
+    void datagramFromAnotherPortDoesNotAnswerHexProbe() throws Exception {
+        try (var silent = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+             var stranger = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            final var target = new InetSocketAddress(InetAddress.getLoopbackAddress(), silent.getLocalPort());
+            final var probe = UdpProbeEngine.get().probe(target, UdpPayload.HEX, "ff", 500);
+
+            // Same host, different port: aimed at the probe's own port once the request reveals it
+            final var request = new DatagramPacket(new byte[16], 16);
+            silent.receive(request);
+            stranger.send(new DatagramPacket(new byte[] {1}, 1, request.getSocketAddress()));
+
+            final var error = assertThrows(ExecutionException.class, probe::get);
+            assertInstanceOf(TimeoutException.class, error.getCause());
+        }
+    }
+
+    @Test
+    void hexProbeToClosedPortFailsOnIcmp() throws Exception {
+        final int port;
+        try (var closed = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        final var started = System.currentTimeMillis();
+        final var probe = UdpProbeEngine.get().probe(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), UdpPayload.HEX, "00", 2000);
+
+        final var error = assertThrows(ExecutionException.class, probe::get);
+        assertInstanceOf(PortUnreachableException.class, error.getCause());
+        assertTrue(System.currentTimeMillis() - started < 1000);
+    }
+
+    @Test
+    void suspectChannelsStopAtTheCap() throws Exception {
+        final var engine = new UdpProbeEngine(2);
+        final var silent = new DatagramSocket[5];
+        try {
+            for (var i = 0; i < silent.length; i++) {
+                silent[i] = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+                final var probe = engine.probe(new InetSocketAddress(InetAddress.getLoopbackAddress(), silent[i].getLocalPort()), UdpPayload.DNS, "example.com", 100);
+
+                // Past the cap every target is still probed and still times out, just without a channel of its own
+                final var error = assertThrows(ExecutionException.class, probe::get);
+                assertInstanceOf(TimeoutException.class, error.getCause());
+                awaitSuspects(engine, Math.min(i + 1, 2));
+            }
+            Thread.sleep(100);
+            assertEquals(2, engine.suspectCount());
+        } finally {
+            for (var socket : silent) {
+                if (socket != null) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void spentDeadlineDoesNotMarkTheTargetSuspect() throws Exception {
+        final var engine = new UdpProbeEngine(2);
+        try (var healthy = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            final var probe = engine.probe(new InetSocketAddress(InetAddress.getLoopbackAddress(), healthy.getLocalPort()), UdpPayload.DNS, "example.com", 0);
+
+            assertThrows(ExecutionException.class, probe::get);
+            Thread.sleep(100);
+            assertEquals(0, engine.suspectCount());
+        }
+    }
+
+    private static void awaitSuspects(UdpProbeEngine engine, int expected) throws InterruptedException {
+        for (var i = 0; i < 100 && engine.suspectCount() != expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, engine.suspectCount());
+    }
+
+    private static void echo(DatagramSocket socket, long delayMs) {
+        try {
+            while (true) {
+                final var packet = new DatagramPacket(new byte[512], 512);
+                socket.receive(packet);
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        Thread.sleep(delayMs); // both requests are in flight before either reply
+                        socket.send(packet);
+                    } catch (Exception ignored) {
+                        // Socket closed by the test
+                    }
+                });
+            }
+        } catch (SocketException closed) {
+            // Test finished
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}